@@ -0,0 +1,134 @@
+package io.github.contractautomata.CIF3Connector.benchmarks;
+
+import io.github.contractautomata.CIF3Connector.AutBinaryConverter;
+import io.github.contractautomata.CIF3Connector.AutDataReader;
+import io.github.contractautomata.CIF3Connector.Bisimulation;
+import io.github.contractautomata.CIF3Connector.CIF3Connector;
+import io.github.contractautomata.catlib.automaton.Automaton;
+import io.github.contractautomata.catlib.automaton.label.CALabel;
+import io.github.contractautomata.catlib.automaton.label.action.Action;
+import io.github.contractautomata.catlib.automaton.state.State;
+import io.github.contractautomata.catlib.automaton.transition.ModalTransition;
+import io.github.contractautomata.catlib.converters.AutDataConverter;
+import io.github.contractautomata.catlib.operations.MSCACompositionFunction;
+import io.github.contractautomata.catlib.operations.MpcSynthesisOperator;
+import io.github.contractautomata.catlib.requirements.StrongAgreement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of each phase of the connector: encoding of the principals, composition, synthesis, CIF3 export, and
+ * export and import of the composition in the .data and binary formats.
+ * Each phase is measured on the output of the previous one, computed once per trial.
+ * Run with -rf json to obtain machine-readable results.
+ */
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConnectorBenchmark {
+
+    @Param({"clientService", "card", "rail", "trains-3-6-0.5", "trains-4-5-0.5", "players-4-0.5", "players-6-0.5"})
+    public String workload;
+
+    private List<Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>>> principals;
+    private List<Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>>> encoded;
+    private Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> composition;
+    private Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> orchestration;
+    private final AutDataConverter<CALabel> bdc = new AutDataConverter<>(CALabel::new);
+    private final AutBinaryConverter cab = new AutBinaryConverter();
+    private final AutDataReader reader = new AutDataReader();
+    private Path dir;
+
+    @Setup
+    public void setup() throws IOException {
+        principals = Workloads.principals(workload);
+        encoded = CIF3Connector.encodePrincipals(principals);
+        composition = compose();
+        orchestration = new MpcSynthesisOperator<String>(new StrongAgreement()).apply(composition);
+        dir = Files.createTempDirectory("cif3connector-benchmark");
+        bdc.exportMSCA(dir.resolve("composition.data").toString(), composition);
+        cab.exportMSCA(dir.resolve("composition.cab").toString(), composition);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (var files = Files.list(dir)) {
+            for (Path f : (Iterable<Path>) files::iterator)
+                Files.delete(f);
+        }
+        Files.delete(dir);
+    }
+
+    @Benchmark
+    public Object encodePrincipals() {
+        return CIF3Connector.encodePrincipals(principals);
+    }
+
+    @Benchmark
+    public Object composition() {
+        return compose();
+    }
+
+    @Benchmark
+    public Object mpcSynthesis() {
+        return new MpcSynthesisOperator<String>(new StrongAgreement()).apply(composition);
+    }
+
+    @Benchmark
+    public Object minimization() {
+        return (orchestration == null) ? null : Bisimulation.minimize(orchestration);
+    }
+
+    @Benchmark
+    public void cifExport() throws IOException {
+        CIF3Connector.contractAutomatonToCIF3(composition, Writer.nullWriter());
+    }
+
+    @Benchmark
+    public void dataExport() throws IOException {
+        bdc.exportMSCA(dir.resolve("export.data").toString(), composition);
+    }
+
+    @Benchmark
+    public void binaryExport() throws IOException {
+        cab.exportMSCA(dir.resolve("export.cab").toString(), composition);
+    }
+
+    @Benchmark
+    public Object dataImport() throws IOException {
+        return bdc.importMSCA(dir.resolve("composition.data").toString());
+    }
+
+    @Benchmark
+    public Object streamingDataImport() throws IOException {
+        return reader.read(dir.resolve("composition.data"));
+    }
+
+    @Benchmark
+    public Object binaryImport() throws IOException {
+        return cab.importMSCA(dir.resolve("composition.cab").toString());
+    }
+
+    private Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> compose() {
+        return new MSCACompositionFunction<>(encoded, t -> new StrongAgreement().negate().test(t.getLabel())).apply(Integer.MAX_VALUE);
+    }
+}
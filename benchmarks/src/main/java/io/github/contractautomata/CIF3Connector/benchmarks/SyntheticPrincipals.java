@@ -0,0 +1,113 @@
+package io.github.contractautomata.CIF3Connector.benchmarks;
+
+import io.github.contractautomata.catlib.automaton.Automaton;
+import io.github.contractautomata.catlib.automaton.label.CALabel;
+import io.github.contractautomata.catlib.automaton.label.action.Action;
+import io.github.contractautomata.catlib.automaton.label.action.OfferAction;
+import io.github.contractautomata.catlib.automaton.label.action.RequestAction;
+import io.github.contractautomata.catlib.automaton.state.BasicState;
+import io.github.contractautomata.catlib.automaton.state.State;
+import io.github.contractautomata.catlib.automaton.transition.ModalTransition;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static io.github.contractautomata.catlib.automaton.transition.ModalTransition.Modality.LAZY;
+import static io.github.contractautomata.catlib.automaton.transition.ModalTransition.Modality.PERMITTED;
+
+/**
+ * Generator of synthetic principal contract automata, whose composition grows with the given parameters.
+ * It is used to measure how each phase of the connector scales with the size of the state space.
+ * Lazy transitions are chosen with a seeded random generator, so that the same parameters always produce the same principals.
+ */
+public final class SyntheticPrincipals {
+
+    private SyntheticPrincipals() {
+    }
+
+    /**
+     * Returns n trains moving on a track of m cells, followed by the m-2 inner cells of the track and by a track
+     * controller. The first and the last cell hold any number of trains, while each inner cell is a segment held by
+     * one train at a time, so that the trains contend for the segments.
+     * A train moves from cell j to cell j+1 by requesting to enter cell j+1 and then to leave cell j, and it is final
+     * in the last cell. A segment offers to be entered when free and to be left when held, and the controller offers
+     * to leave the first cell and to enter the last one.
+     * Each request is lazy with probability lazyRatio.
+     * The composition has less than (2m)^n states, before the encoding of lazy transitions.
+     */
+    public static List<Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>>> trains(int n, int m, double lazyRatio, long seed) {
+        if (n < 1 || m < 2)
+            throw new IllegalArgumentException("At least one train and two cells are required");
+        Random random = new Random(seed);
+        List<Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>>> principals = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            List<State<String>> cells = IntStream.range(0, m)
+                    .mapToObj(j -> state("c" + j, j == 0, j == m - 1))
+                    .collect(Collectors.toList());
+            Set<ModalTransition<String, Action, State<String>, CALabel>> tr = new HashSet<>();
+            for (int j = 0; j < m - 1; j++) {
+                State<String> between = state("c" + j + "c" + (j + 1), false, false);
+                tr.add(new ModalTransition<>(cells.get(j), new CALabel(1, 0, new RequestAction("enter" + (j + 1))), between,
+                        random.nextDouble() < lazyRatio ? LAZY : PERMITTED));
+                tr.add(new ModalTransition<>(between, new CALabel(1, 0, new RequestAction("leave" + j)), cells.get(j + 1),
+                        random.nextDouble() < lazyRatio ? LAZY : PERMITTED));
+            }
+            principals.add(new Automaton<>(tr));
+        }
+        for (int j = 1; j < m - 1; j++)
+            principals.add(segment(j));
+        principals.add(controller(List.of("leave0", "enter" + (m - 1))));
+        return principals;
+    }
+
+    // an inner cell of the track, free in its initial and final state
+    private static Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> segment(int j) {
+        State<String> free = state("Free", true, true);
+        State<String> held = state("Held", false, false);
+        return new Automaton<>(Set.of(
+                new ModalTransition<>(free, new CALabel(1, 0, new OfferAction("enter" + j)), held, PERMITTED),
+                new ModalTransition<>(held, new CALabel(1, 0, new OfferAction("leave" + j)), free, PERMITTED)));
+    }
+
+    /**
+     * Returns a dealer offering cards, followed by k players each requesting two cards and final after the second one.
+     * Each request is lazy with probability lazyRatio.
+     * The composition has 3^k states, before the encoding of lazy transitions.
+     */
+    public static List<Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>>> players(int k, double lazyRatio, long seed) {
+        if (k < 1)
+            throw new IllegalArgumentException("At least one player is required");
+        Random random = new Random(seed);
+        List<Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>>> principals = new ArrayList<>();
+        principals.add(controller(List.of("card")));
+        for (int i = 0; i < k; i++) {
+            State<String> waiting = state("Waiting", true, false);
+            State<String> oneCard = state("OneCard", false, false);
+            State<String> twoCards = state("TwoCards", false, true);
+            Set<ModalTransition<String, Action, State<String>, CALabel>> tr = new HashSet<>();
+            tr.add(new ModalTransition<>(waiting, new CALabel(1, 0, new RequestAction("card")), oneCard,
+                    random.nextDouble() < lazyRatio ? LAZY : PERMITTED));
+            tr.add(new ModalTransition<>(oneCard, new CALabel(1, 0, new RequestAction("card")), twoCards,
+                    random.nextDouble() < lazyRatio ? LAZY : PERMITTED));
+            principals.add(new Automaton<>(tr));
+        }
+        return principals;
+    }
+
+    // a single state, initial and final, offering each action in a loop
+    private static Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> controller(List<String> actions) {
+        State<String> s = state("0", true, true);
+        return new Automaton<>(actions.stream()
+                .map(a -> new ModalTransition<String, Action, State<String>, CALabel>(s, new CALabel(1, 0, new OfferAction(a)), s, PERMITTED))
+                .collect(Collectors.toSet()));
+    }
+
+    private static State<String> state(String label, boolean initial, boolean fin) {
+        return new State<>(List.of(new BasicState<>(label, initial, fin, false)));
+    }
+}
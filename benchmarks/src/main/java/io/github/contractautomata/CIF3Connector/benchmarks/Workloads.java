@@ -0,0 +1,57 @@
+package io.github.contractautomata.CIF3Connector.benchmarks;
+
+import io.github.contractautomata.CIF3Connector.AutDataReader;
+import io.github.contractautomata.catlib.automaton.Automaton;
+import io.github.contractautomata.catlib.automaton.label.CALabel;
+import io.github.contractautomata.catlib.automaton.label.action.Action;
+import io.github.contractautomata.catlib.automaton.state.State;
+import io.github.contractautomata.catlib.automaton.transition.ModalTransition;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Principal automata of the benchmarked workloads, identified by a name.
+ * The names clientService, card and rail denote the bundled examples. The names trains-N-M-R and players-K-R
+ * denote synthetic principals (see {@link SyntheticPrincipals}), where R is the ratio of lazy transitions.
+ */
+public final class Workloads {
+
+    private Workloads() {
+    }
+
+    public static List<Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>>> principals(String workload) {
+        String[] p = workload.split("-");
+        switch (p[0]) {
+            case "clientService":
+                return load("client.data", "service.data");
+            case "card":
+                return load("Dealer.data", "Player.data", "Player.data");
+            case "rail":
+                return load("train1.data", "train2.data", "driver.data", "semaphoreContr.data", "semaphore.data");
+            case "trains":
+                return SyntheticPrincipals.trains(Integer.parseInt(p[1]), Integer.parseInt(p[2]), Double.parseDouble(p[3]), 42);
+            case "players":
+                return SyntheticPrincipals.players(Integer.parseInt(p[1]), Double.parseDouble(p[2]), 42);
+            default:
+                throw new IllegalArgumentException("Unknown workload " + workload);
+        }
+    }
+
+    private static List<Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>>> load(String... resources) {
+        List<Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>>> principals = new ArrayList<>();
+        for (String r : resources) {
+            try (InputStream in = Workloads.class.getClassLoader().getResourceAsStream(r)) {
+                if (in == null)
+                    throw new IllegalArgumentException("Missing resource " + r);
+                principals.add(new AutDataReader().read(in));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return principals;
+    }
+}
@@ -0,0 +1,237 @@
+package io.github.contractautomata.CIF3Connector;
+
+import io.github.contractautomata.catlib.automaton.Automaton;
+import io.github.contractautomata.catlib.automaton.label.CALabel;
+import io.github.contractautomata.catlib.automaton.label.action.Action;
+import io.github.contractautomata.catlib.automaton.state.BasicState;
+import io.github.contractautomata.catlib.automaton.state.State;
+import io.github.contractautomata.catlib.automaton.transition.ModalTransition;
+import io.github.contractautomata.catlib.converters.AutConverter;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Converter of contract automata to and from a compact binary format, with extension .cab, as an alternative to
+ * the textual .data format for intermediate automata.
+ * <p>
+ * A file starts with the magic bytes {@code CAB} and a version byte, followed by the rank and by five tables, each
+ * one prefixed by its length: strings (UTF-8), basic states (string and flags), actions (string), states (one basic
+ * state per principal) and labels (one action per principal). Then, for each state, its forward star is stored as
+ * the number of its transitions followed by each transition as label and modality, and target.
+ * All numbers are varints and all references are indexes in the tables, so that each string, basic state, action
+ * and label is stored and loaded once. Basic states shared by several states remain shared when loaded.
+ * <p>
+ * Files are read through a memory mapping, straight into the objects of the automaton.
+ */
+public class AutBinaryConverter implements AutConverter<
+        Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>>,
+        Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>>> {
+
+    public static final String EXTENSION = ".cab";
+    private static final byte[] MAGIC = {'C', 'A', 'B'};
+    private static final byte VERSION = 1;
+    private static final int INITIAL = 1;
+    private static final int FINAL = 2;
+    private static final int COMMITTED = 4;
+    private static final ModalTransition.Modality[] MODALITIES = ModalTransition.Modality.values();
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    @Override
+    public Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> importMSCA(String filename) throws IOException {
+        if (!filename.endsWith(EXTENSION))
+            throw new IllegalArgumentException("Not a " + EXTENSION + " format");
+        try (FileChannel ch = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+            if (ch.size() > Integer.MAX_VALUE)
+                throw new IOException("The file " + filename + " is too large to be mapped");
+            ByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            try {
+                return read(buf);
+            } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+                throw new IOException("Malformed " + EXTENSION + " file " + filename, e);
+            }
+        }
+    }
+
+    private Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> read(ByteBuffer buf) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        buf.get(magic);
+        if (!Arrays.equals(magic, MAGIC) || buf.get() != VERSION)
+            throw new IOException("Not a " + EXTENSION + " file, or of an unsupported version");
+        int rank = readVarint(buf);
+
+        String[] strings = new String[readVarint(buf)];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] b = new byte[readVarint(buf)];
+            buf.get(b);
+            strings[i] = new String(b, StandardCharsets.UTF_8);
+        }
+
+        int numBasicStates = readVarint(buf);
+        List<BasicState<String>> basicStates = new ArrayList<>(numBasicStates);
+        for (int i = 0; i < numBasicStates; i++) {
+            String label = strings[readVarint(buf)];
+            int flags = buf.get();
+            basicStates.add(new BasicState<>(label, (flags & INITIAL) != 0, (flags & FINAL) != 0, (flags & COMMITTED) != 0));
+        }
+
+        Action[] actions = new Action[readVarint(buf)];
+        for (int i = 0; i < actions.length; i++)
+            actions[i] = parseAction(strings[readVarint(buf)]);
+
+        int numStates = readVarint(buf);
+        List<State<String>> states = new ArrayList<>(numStates);
+        for (int i = 0; i < numStates; i++) {
+            List<BasicState<String>> principals = new ArrayList<>(rank);
+            for (int j = 0; j < rank; j++)
+                principals.add(basicStates.get(readVarint(buf)));
+            states.add(new State<>(principals));
+        }
+
+        CALabel[] labels = new CALabel[readVarint(buf)];
+        for (int i = 0; i < labels.length; i++) {
+            List<Action> content = new ArrayList<>(rank);
+            for (int j = 0; j < rank; j++)
+                content.add(actions[readVarint(buf)]);
+            labels[i] = new CALabel(content);
+        }
+
+        int numTransitions = readVarint(buf);
+        Set<ModalTransition<String, Action, State<String>, CALabel>> tr = new HashSet<>(Math.max(16, (int) (numTransitions / .75f) + 1));
+        for (State<String> source : states)
+            for (int k = readVarint(buf); k > 0; k--) {
+                int labelAndModality = readVarint(buf);
+                tr.add(new ModalTransition<>(source, labels[labelAndModality >>> 2], states.get(readVarint(buf)), MODALITIES[labelAndModality & 3]));
+            }
+        if (tr.size() != numTransitions)
+            throw new IOException("Expected " + numTransitions + " transitions, found " + tr.size());
+        return new Automaton<>(tr);
+    }
+
+    /**
+     * Stores the automaton in the binary format, appending the extension .cab to the filename if missing.
+     */
+    @Override
+    public void exportMSCA(String filename, Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> aut) throws IOException {
+        if (filename.isEmpty())
+            throw new IllegalArgumentException("Empty file name");
+        if (!filename.endsWith(EXTENSION))
+            filename += EXTENSION;
+
+        // Tables, each element is indexed by its first occurrence
+        Map<String, Integer> strings = new HashMap<>();
+        Map<BasicState<String>, Integer> basicStates = new IdentityHashMap<>();
+        Map<String, Integer> actions = new HashMap<>();
+        Map<State<String>, Integer> states = new IdentityHashMap<>();
+        Map<CALabel, Integer> labels = new HashMap<>();
+        List<State<String>> stateList = new ArrayList<>(aut.getStates());
+        List<CALabel> labelList = new ArrayList<>();
+        List<BasicState<String>> basicStateList = new ArrayList<>();
+        List<Action> actionList = new ArrayList<>();
+        for (State<String> s : stateList) {
+            states.put(s, states.size());
+            for (BasicState<String> bs : s.getState())
+                if (basicStates.putIfAbsent(bs, basicStates.size()) == null) {
+                    basicStateList.add(bs);
+                    strings.putIfAbsent(bs.getState(), strings.size());
+                }
+        }
+
+        // Forward stars, as arrays of label and modality, and target, indexed by source
+        Set<ModalTransition<String, Action, State<String>, CALabel>> transitions = aut.getTransition();
+        int[] degree = new int[stateList.size()];
+        for (ModalTransition<String, Action, State<String>, CALabel> t : transitions) {
+            degree[states.get(t.getSource())]++;
+            if (labels.putIfAbsent(t.getLabel(), labels.size()) == null) {
+                labelList.add(t.getLabel());
+                for (Action a : t.getLabel().getContent())
+                    if (actions.putIfAbsent(a.toString(), actions.size()) == null) {
+                        actionList.add(a);
+                        strings.putIfAbsent(a.toString(), strings.size());
+                    }
+            }
+        }
+        int[] start = new int[stateList.size() + 1];
+        for (int i = 0; i < degree.length; i++)
+            start[i + 1] = start[i] + degree[i];
+        int[] edges = new int[2 * transitions.size()];
+        int[] next = Arrays.copyOf(start, degree.length);
+        for (ModalTransition<String, Action, State<String>, CALabel> t : transitions) {
+            int e = 2 * next[states.get(t.getSource())]++;
+            edges[e] = (labels.get(t.getLabel()) << 2) | t.getModality().ordinal();
+            edges[e + 1] = states.get(t.getTarget());
+        }
+
+        String[] stringList = new String[strings.size()];
+        strings.forEach((s, i) -> stringList[i] = s);
+
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(Path.of(filename)), BUFFER_SIZE)) {
+            out.write(MAGIC);
+            out.write(VERSION);
+            writeVarint(out, aut.getRank());
+            writeVarint(out, stringList.length);
+            for (String s : stringList) {
+                byte[] b = s.getBytes(StandardCharsets.UTF_8);
+                writeVarint(out, b.length);
+                out.write(b);
+            }
+            writeVarint(out, basicStateList.size());
+            for (BasicState<String> bs : basicStateList) {
+                writeVarint(out, strings.get(bs.getState()));
+                out.write((bs.isInitial() ? INITIAL : 0) | (bs.isFinalState() ? FINAL : 0) | (bs.isCommitted() ? COMMITTED : 0));
+            }
+            writeVarint(out, actionList.size());
+            for (Action a : actionList)
+                writeVarint(out, strings.get(a.toString()));
+            writeVarint(out, stateList.size());
+            for (State<String> s : stateList)
+                for (BasicState<String> bs : s.getState())
+                    writeVarint(out, basicStates.get(bs));
+            writeVarint(out, labelList.size());
+            for (CALabel l : labelList)
+                for (Action a : l.getContent())
+                    writeVarint(out, actions.get(a.toString()));
+            writeVarint(out, transitions.size());
+            for (int i = 0; i < degree.length; i++) {
+                writeVarint(out, degree[i]);
+                for (int e = 2 * start[i]; e < 2 * start[i + 1]; e++)
+                    writeVarint(out, edges[e]);
+            }
+        }
+    }
+
+    private static void writeVarint(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(ByteBuffer buf) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buf.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0)
+                return value;
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+}
@@ -0,0 +1,213 @@
+package io.github.contractautomata.CIF3Connector;
+
+import io.github.contractautomata.catlib.automaton.Automaton;
+import io.github.contractautomata.catlib.automaton.label.CALabel;
+import io.github.contractautomata.catlib.automaton.label.action.Action;
+import io.github.contractautomata.catlib.automaton.state.BasicState;
+import io.github.contractautomata.catlib.automaton.state.State;
+import io.github.contractautomata.catlib.automaton.transition.ModalTransition;
+import io.github.contractautomata.catlib.converters.AutDataConverter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static io.github.contractautomata.catlib.automaton.transition.ModalTransition.Modality.LAZY;
+import static io.github.contractautomata.catlib.automaton.transition.ModalTransition.Modality.PERMITTED;
+import static io.github.contractautomata.catlib.automaton.transition.ModalTransition.Modality.URGENT;
+
+/**
+ * Streaming reader of contract automata in the .data format, accepting the same files as
+ * {@link AutDataConverter#importMSCA(String)} and building the same automata, from any input stream.
+ * <p>
+ * The content is read line by line through a large buffer, and each line is parsed in place, without regular
+ * expressions. States, basic states and labels are interned while parsing: the text of each state and label is
+ * looked up in a hash table, and only parsed the first time it occurs. Actions are also shared among the automata
+ * read by the same reader, which can be used by several threads to read different files in parallel.
+ */
+public class AutDataReader {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final String SEPARATOR = "],[";
+
+    private final AutDataConverter<CALabel> actionParser = new AutDataConverter<>(CALabel::new);
+    private final Map<String, Action> actions = new ConcurrentHashMap<>();
+
+    /**
+     * Reads the automaton of a .data file.
+     */
+    public Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> read(Path file) throws IOException {
+        if (!file.toString().endsWith(".data"))
+            throw new IllegalArgumentException("Not a .data format");
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            return read(Channels.newInputStream(ch));
+        }
+    }
+
+    /**
+     * Reads an automaton in the .data format from the stream, which is not closed.
+     */
+    public Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> read(InputStream in) throws IOException {
+        return new Parser().parse(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE));
+    }
+
+    // The state of the parsing of one automaton
+    private final class Parser {
+        private int rank = -1;
+        private String[] initial;
+        private String[][] finals;
+        private String[][] committed;
+        private final Map<String, State<String>> statesByText = new HashMap<>();
+        private final Map<List<String>, State<String>> states = new HashMap<>();
+        private final List<Map<String, BasicState<String>>> basicStates = new ArrayList<>();
+        private final Map<String, CALabel> labelsByText = new HashMap<>();
+        private final Set<ModalTransition<String, Action, State<String>, CALabel>> tr = new HashSet<>();
+        private int lineNumber = 0;
+
+        Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> parse(BufferedReader in) throws IOException {
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                if (line.isEmpty())
+                    continue;
+                switch (line.charAt(0)) {
+                    case 'R':
+                        rank = Integer.parseInt(line.substring(6).trim());
+                        for (int i = basicStates.size(); i < rank; i++)
+                            basicStates.add(new HashMap<>());
+                        break;
+                    case 'I':
+                        initial = readInitialState(line);
+                        break;
+                    case 'F':
+                        finals = readCommittedOrFinalStates(line, "Final states");
+                        break;
+                    case 'C':
+                        committed = readCommittedOrFinalStates(line, "Committed states");
+                        break;
+                    case '(':
+                        tr.add(readTransition(line, PERMITTED));
+                        break;
+                    case '!':
+                        tr.add(readTransition(line, readModality(line)));
+                        break;
+                    default:
+                        //other lines, e.g. the header of the transitions, are ignored
+                }
+            }
+            return new Automaton<>(tr);
+        }
+
+        private String[] readInitialState(String line) {
+            String[] s = Arrays.stream(line.split("[\\[\\],]"))
+                    .filter(x -> !x.contains("Initial state"))
+                    .map(String::trim)
+                    .toArray(String[]::new);
+            if (s.length != rank)
+                throw new IllegalArgumentException("Initial state with different rank");
+            return s;
+        }
+
+        private String[][] readCommittedOrFinalStates(String line, String header) {
+            String[][] s = Arrays.stream(line.split("]"))
+                    .map(x -> Arrays.stream(x.split("[,|\\[]"))
+                            .filter(y -> !y.contains(header))
+                            .map(String::trim)
+                            .filter(y -> !y.isEmpty())
+                            .toArray(String[]::new))
+                    .toArray(String[][]::new);
+            if (s.length != rank)
+                throw new IllegalArgumentException(header + " with different rank");
+            return s;
+        }
+
+        private ModalTransition.Modality readModality(String line) {
+            if (line.length() > 1 && line.charAt(1) == 'U')
+                return URGENT;
+            if (line.length() > 1 && line.charAt(1) == 'L')
+                return LAZY;
+            throw new IllegalArgumentException("Invalid modality");
+        }
+
+        // a transition is ([source],[label],[target]), possibly preceded by its modality
+        private ModalTransition<String, Action, State<String>, CALabel> readTransition(String line, ModalTransition.Modality modality) throws IOException {
+            int start = line.indexOf("([");
+            int end = line.lastIndexOf("])");
+            int first = (start < 0) ? -1 : line.indexOf(SEPARATOR, start + 2);
+            int last = line.lastIndexOf(SEPARATOR, end);
+            if (start < 0 || end < 0 || first < 0 || last <= first)
+                throw new IOException("Ill-formed transition at line " + lineNumber + ": " + line);
+            if (initial == null || finals == null)
+                throw new IOException("Transition before the initial and final states at line " + lineNumber);
+            State<String> source = state(line.substring(start + 2, first));
+            CALabel label = label(line.substring(first + SEPARATOR.length(), last));
+            State<String> target = state(line.substring(last + SEPARATOR.length(), end));
+            return new ModalTransition<>(source, label, target, modality);
+        }
+
+        private State<String> state(String text) throws IOException {
+            State<String> s = statesByText.get(text);
+            if (s != null)
+                return s;
+            List<String> labels = split(text);
+            s = states.get(labels);
+            if (s == null) {
+                List<BasicState<String>> principals = new ArrayList<>(rank);
+                for (int i = 0; i < rank; i++)
+                    principals.add(basicState(i, labels.get(i)));
+                s = new State<>(principals);
+                states.put(labels, s);
+            }
+            statesByText.put(text, s);
+            return s;
+        }
+
+        private BasicState<String> basicState(int i, String label) {
+            return basicStates.get(i).computeIfAbsent(label, l -> new BasicState<>(l,
+                    initial[i].equals(l),
+                    Arrays.asList(finals[i]).contains(l),
+                    committed != null && i < committed.length && committed[i] != null && Arrays.asList(committed[i]).contains(l)));
+        }
+
+        private CALabel label(String text) throws IOException {
+            CALabel l = labelsByText.get(text);
+            if (l == null) {
+                List<String> tokens = split(text);
+                List<Action> content = new ArrayList<>(rank);
+                for (String t : tokens)
+                    content.add(actions.computeIfAbsent(t, actionParser::parseAction));
+                l = new CALabel(content);
+                labelsByText.put(text, l);
+            }
+            return l;
+        }
+
+        // splits the text of a state or a label on commas, checking its rank
+        private List<String> split(String text) throws IOException {
+            List<String> parts = new ArrayList<>(rank);
+            int from = 0;
+            for (int comma = text.indexOf(','); comma >= 0; comma = text.indexOf(',', from)) {
+                parts.add(text.substring(from, comma).trim());
+                from = comma + 1;
+            }
+            parts.add(text.substring(from).trim());
+            if (parts.size() != rank)
+                throw new IOException("Ill-formed transitions, different ranks at line " + lineNumber);
+            return parts;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package io.github.contractautomata.CIF3Connector;
+
+import io.github.contractautomata.catlib.automaton.label.CALabel;
+import io.github.contractautomata.catlib.automaton.label.action.Action;
+import io.github.contractautomata.catlib.automaton.state.State;
+import io.github.contractautomata.catlib.automaton.transition.ModalTransition;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Compact int-based view of an automaton, built once per export.
+ * States are numbered following the iteration order of the given states, the outgoing edges of each state are
+ * stored contiguously (CSR layout) and each distinct CIF3 event name is int-coded in order of first occurrence
+ * among the transitions.
+ * The view allows to render the CIF3 locations and edges in time linear in the number of states and transitions.
+ */
+final class AutomatonIndex {
+
+    final List<State<String>> states;
+
+    //the outgoing edges of state i are at positions edgeStart[i] ... edgeStart[i+1]-1 of edgeTarget and edgeEvent
+    final int[] edgeStart;
+    final int[] edgeTarget;
+    final int[] edgeEvent;
+
+    final List<String> events;
+    final BitSet uncontrollable;
+
+    AutomatonIndex(Collection<State<String>> states,
+                   Collection<ModalTransition<String, Action, State<String>, CALabel>> transitions,
+                   Function<ModalTransition<String, Action, State<String>, CALabel>, String> eventName) {
+        this.states = new ArrayList<>(states);
+        Map<State<String>, Integer> stateId = new HashMap<>(this.states.size() * 2);
+        for (int i = 0; i < this.states.size(); i++)
+            stateId.put(this.states.get(i), i);
+
+        int n = this.states.size();
+        int m = transitions.size();
+        int[] source = new int[m];
+        int[] target = new int[m];
+        int[] event = new int[m];
+
+        Map<String, Integer> eventId = new HashMap<>();
+        this.events = new ArrayList<>();
+        this.uncontrollable = new BitSet();
+        this.edgeStart = new int[n + 1];
+
+        int k = 0;
+        for (ModalTransition<String, Action, State<String>, CALabel> t : transitions) {
+            String name = eventName.apply(t);
+            Integer id = eventId.get(name);
+            if (id == null) {
+                id = events.size();
+                eventId.put(name, id);
+                events.add(name);
+                if (t.isNecessary())
+                    uncontrollable.set(id);
+            }
+            source[k] = stateId.get(t.getSource());
+            target[k] = stateId.get(t.getTarget());
+            event[k] = id;
+            edgeStart[source[k] + 1]++;
+            k++;
+        }
+
+        //prefix sums, then place each edge in its source's slot preserving the order of the transitions
+        for (int i = 0; i < n; i++)
+            edgeStart[i + 1] += edgeStart[i];
+        int[] next = new int[n];
+        System.arraycopy(edgeStart, 0, next, 0, n);
+        this.edgeTarget = new int[m];
+        this.edgeEvent = new int[m];
+        for (int e = 0; e < m; e++) {
+            int pos = next[source[e]]++;
+            edgeTarget[pos] = target[e];
+            edgeEvent[pos] = event[e];
+        }
+    }
+
+    int numStates() {
+        return states.size();
+    }
+
+    boolean hasOutgoing(int state) {
+        return edgeStart[state] < edgeStart[state + 1];
+    }
+}
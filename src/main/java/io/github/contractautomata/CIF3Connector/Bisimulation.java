@@ -0,0 +1,157 @@
+package io.github.contractautomata.CIF3Connector;
+
+import io.github.contractautomata.catlib.automaton.Automaton;
+import io.github.contractautomata.catlib.automaton.label.CALabel;
+import io.github.contractautomata.catlib.automaton.label.action.Action;
+import io.github.contractautomata.catlib.automaton.state.State;
+import io.github.contractautomata.catlib.automaton.transition.ModalTransition;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Minimization of an automaton up to strong bisimulation, used to shrink the orchestration before its export.
+ * Two states are bisimilar if both or none are marked and, for each CIF3 event, they reach bisimilar states.
+ * The events carry the controllability of the transitions, so bisimilar states are translated into locations with
+ * the same edges.
+ * <p>
+ * The partition of the states is refined by signatures: in each round, the signature of a state is its block
+ * together with the events and target blocks of its edges, and each block is split by signature, until no block is
+ * split. Signatures are computed in parallel over the states.
+ * The quotient has one state of each block as its representative, the initial state representing its own block,
+ * so that the quotient is made of states of the original automaton, and the representative of each state is kept
+ * for traceability.
+ */
+public class Bisimulation {
+
+    private final Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> quotient;
+    private final List<State<String>> states;
+    private final Map<State<String>, State<String>> representatives;
+    private final int rounds;
+
+    private Bisimulation(Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> quotient,
+                         List<State<String>> states, Map<State<String>, State<String>> representatives, int rounds) {
+        this.quotient = quotient;
+        this.states = states;
+        this.representatives = representatives;
+        this.rounds = rounds;
+    }
+
+    public static Bisimulation minimize(Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> aut) {
+        AutomatonIndex index = new AutomatonIndex(aut.getStates(), aut.getTransition(), CIF3Connector.cachedCIF3ActionNames());
+        int n = index.numStates();
+
+        // The initial partition separates marked and unmarked states
+        int[] block = new int[n];
+        for (int i = 0; i < n; i++)
+            block[i] = index.states.get(i).isFinalState() ? 1 : 0;
+        int blocks = (int) Arrays.stream(block).distinct().count();
+        int rounds = 0;
+        while (true) {
+            rounds++;
+            final int[] current = block;
+            Signature[] signatures = IntStream.range(0, n).parallel()
+                    .mapToObj(i -> new Signature(index, current, i))
+                    .toArray(Signature[]::new);
+            Map<Signature, Integer> ids = new HashMap<>();
+            int[] next = new int[n];
+            for (int i = 0; i < n; i++)
+                next[i] = ids.computeIfAbsent(signatures[i], s -> ids.size());
+            block = next;
+            //signatures include the current block, so blocks are only split and the partition is stable if none is
+            if (ids.size() == blocks)
+                break;
+            blocks = ids.size();
+        }
+
+        int[] representative = new int[blocks];
+        Arrays.fill(representative, -1);
+        for (int i = 0; i < n; i++)
+            if (index.states.get(i).isInitial())
+                representative[block[i]] = i;
+        for (int i = 0; i < n; i++)
+            if (representative[block[i]] < 0)
+                representative[block[i]] = i;
+        Map<State<String>, State<String>> representatives = new HashMap<>(2 * n);
+        for (int i = 0; i < n; i++)
+            representatives.put(index.states.get(i), index.states.get(representative[block[i]]));
+
+        // The transitions of the representatives, redirected to the representatives of their targets
+        Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> quotient =
+                new Automaton<>(aut.getTransition().parallelStream()
+                        .filter(t -> representatives.get(t.getSource()) == t.getSource())
+                        .map(t -> new ModalTransition<>(t.getSource(), t.getLabel(), representatives.get(t.getTarget()), t.getModality()))
+                        .collect(Collectors.toSet()));
+        return new Bisimulation(quotient, index.states, representatives, rounds);
+    }
+
+    public Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> getQuotient() {
+        return quotient;
+    }
+
+    /**
+     * Returns the state of the quotient representing the given state of the minimized automaton.
+     */
+    public State<String> getRepresentative(State<String> s) {
+        return representatives.get(s);
+    }
+
+    /**
+     * Returns the number of refinement rounds, the last one splitting no block.
+     */
+    public int getRounds() {
+        return rounds;
+    }
+
+    /**
+     * Writes the mapping from the states of the minimized automaton to their representatives, one state per line:
+     * the representative and the state, separated by a tab, both written as in the @state annotations of CIF3.
+     */
+    void writeMapping(Path file) throws IOException {
+        CIF3Connector.writeAtomically(file, tmp -> {
+            try (Writer out = CIF3Connector.newCifWriter(tmp)) {
+                for (State<String> s : states)
+                    out.append(CIF3Connector.stateToString(representatives.get(s))).append('\t')
+                            .append(CIF3Connector.stateToString(s)).append('\n');
+            }
+        });
+    }
+
+    // The block of a state followed by the sorted and distinct pairs of event and target block of its edges
+    private static final class Signature {
+        private final long[] content;
+        private final int hash;
+
+        Signature(AutomatonIndex index, int[] block, int state) {
+            long[] pairs = new long[index.edgeStart[state + 1] - index.edgeStart[state]];
+            for (int e = index.edgeStart[state]; e < index.edgeStart[state + 1]; e++)
+                pairs[e - index.edgeStart[state]] = ((long) index.edgeEvent[e] << 32) | block[index.edgeTarget[e]];
+            Arrays.sort(pairs);
+            long[] content = new long[pairs.length + 1];
+            content[0] = block[state];
+            int size = 1;
+            for (int k = 0; k < pairs.length; k++)
+                if (k == 0 || pairs[k] != pairs[k - 1])
+                    content[size++] = pairs[k];
+            this.content = (size == content.length) ? content : Arrays.copyOf(content, size);
+            this.hash = Arrays.hashCode(this.content);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Signature && hash == ((Signature) o).hash && Arrays.equals(content, ((Signature) o).content);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -14,16 +14,40 @@ import io.github.contractautomata.catlib.operations.MSCACompositionFunction;
 import io.github.contractautomata.catlib.operations.MpcSynthesisOperator;
 import io.github.contractautomata.catlib.requirements.StrongAgreement;
 
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.StringJoiner;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 import static io.github.contractautomata.catlib.automaton.transition.ModalTransition.Modality.PERMITTED;
 import static io.github.contractautomata.catlib.automaton.transition.ModalTransition.Modality.URGENT;
@@ -35,154 +59,549 @@ import static io.github.contractautomata.catlib.automaton.transition.ModalTransi
  */
 public class CIF3Connector {
     private static final AutDataConverter<CALabel> bdc = new AutDataConverter<>(CALabel::new);
-    private static boolean printContractAutomata = false;
+    private static final AutBinaryConverter cab = new AutBinaryConverter();
+    private static final StrongAgreement agreement = new StrongAgreement();
+    private static final int CIF_BUFFER_SIZE = 1 << 16;
+    private static final int SHARD_SIZE = 4096;
 
 
     public static void main(String[] args) {
-        List<String> inputFiles = new ArrayList<>();
-        String compCif = "Composition.cif";
-        String orchCif = "Orchestration.cif";
-
-        // Simple argument parsing
-        for (int i = 0; i < args.length; i++) {
-            if ("-i".equals(args[i]) && i + 1 < args.length) {
-                i++;
-                while (i < args.length && !args[i].startsWith("-")) {
-                    if (args[i].endsWith(".data")) inputFiles.add(args[i]);
-                    i++;
+        CIF3ConnectorJob job;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if ("-b".equals(args[i]) && i + 1 < args.length) {
+                    runBatch(args[i + 1], parseWorkers(args));
+                    return;
+                } else if ("-s".equals(args[i]) && i + 1 < args.length) {
+                    runServer(args[i + 1], parseWorkers(args));
+                    return;
                 }
-                i--;
-            } else if ("-o".equals(args[i]) && i + 1 < args.length) {
-                i++;
-                if (i < args.length && args[i].endsWith(".cif")) compCif = args[i++];
-                if (i < args.length && args[i].endsWith(".cif")) orchCif = args[i];
-            } else if ("-a".equals(args[i])){
-                printContractAutomata=true;
-            }
-        }
-
-        if (inputFiles.isEmpty()) {
-            System.out.println("Usage: java -jar <jarfile> -i <input1.data> [<input2.data> ...] [-o <composition.cif> <orchestration.cif>] [-a]");
-            System.out.println("  -i: List of input automata files (.data).");
-            System.out.println("  -o: (Optional) Output CIF filenames for composition and orchestration.");
-            System.out.println("      Defaults: Composition.cif and Orchestration.cif");
-            System.out.println("  -a: (Optional) Output intermediate contract automata (composition and orchestration).");
-            System.out.println("Examples:");
-            System.out.println("  java -jar CIF3connector-1.0-SNAPSHOT.jar -i Dealer.data Player.data -o CardComposition.cif CardOrchestration.cif");
-            System.out.println("  java -jar tool.jar -i CardComposition.data");
+            }
+            job = CIF3ConnectorJob.parse(args);
+        } catch (IllegalArgumentException e) {
+            //an invalid option value
+            printUsage();
+            System.err.println(e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        if (job.getInputFiles().isEmpty()) {
+            printUsage();
             System.err.println("No input files specified.");
             return;
         }
 
         try {
-            if (inputFiles.size() == 1) {
-                // Only one automaton: treat as already composed
-                var aut = bdc.importMSCA(inputFiles.get(0));
-                if (aut.getTransition().parallelStream().anyMatch(ModalTransition::isLazy))
-                    throw new RuntimeException("The provided composed automaton contains lazy transitions. ");
-                exportToCif(aut, compCif);
-
-                var mpc = new MpcSynthesisOperator<String>(new StrongAgreement()).apply(aut);
-                exportToCif(mpc, orchCif);
-            } else {
-                // Multiple automata: compose, then synthesize
-                List<Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>>> automata =
-                        inputFiles.stream().map(f -> {
-                            try {
-                                return bdc.importMSCA(f);
-                            } catch (IOException e) {
-                                throw new RuntimeException(e);
-                            }
-                        }).collect(Collectors.toList());
-
-                var comp = new MSCACompositionFunction<>(
-                        encodePrincipals(automata),
-                        t -> new StrongAgreement().negate().test(t.getLabel())
-                ).apply(Integer.MAX_VALUE);
-
-                exportToCif(comp, compCif);
-
-                var mpc = new MpcSynthesisOperator<String>(new StrongAgreement()).apply(comp);
-                exportToCif(mpc, orchCif);
-            }
+            run(job);
         } catch (IOException e) {
             e.printStackTrace();
+        } catch (ExplorationLimitException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+        } catch (EquivalenceException e) {
+            System.err.println(e.getMessage());
+            System.exit(3);
         }
     }
 
+    private static void printUsage() {
+        System.out.println("Usage: java -jar <jarfile> -i <input1.data> [<input2.data> ...] [-o <composition.cif> <orchestration.cif>] [-a [cab]] [-p <threads>] [-c <cache dir> [<MB>]] [-f <forbidden.txt>] [-r <report.json>] [-v <seconds>] [-m] [-q] [-e <supervisor.cif>] [-l <states> [<transitions>]] [-t <seconds>] [-u <heap %>] [-x <partial.cif>]");
+        System.out.println("       java -jar <jarfile> -b <manifest> [-j <workers>]");
+        System.out.println("       java -jar <jarfile> -s <port|socket> [-j <workers>]");
+        System.out.println("  -i: List of input automata files (.data, or .cab written with -a cab).");
+        System.out.println("  -o: (Optional) Output CIF filenames for composition and orchestration.");
+        System.out.println("      Defaults: Composition.cif and Orchestration.cif");
+        System.out.println("  -a: (Optional) Output intermediate contract automata (composition and orchestration), in the compact binary format if followed by cab.");
+        System.out.println("  -f: (Optional) File of forbidden states, whose successors are not explored. Each line is a rule, e.g. 1=2 & !1:.*OUT.*");
+        System.out.println("  -p: (Optional) Number of threads rendering the CIF3 locations. Default: 1");
+        System.out.println("  -c: (Optional) Cache directory of composition and orchestration results, optionally followed by its size limit in MB. Default limit: 1024");
+        System.out.println("  -r: (Optional) Write a JSON report with wall time, CPU time, allocated bytes, GC time and sizes of each phase.");
+        System.out.println("  -v: (Optional) Print a progress line on the standard error every given number of seconds.");
+        System.out.println("  -m: (Optional) Modular export: one CIF3 automaton per principal is written to the composition file, without computing the composition and the orchestration.");
+        System.out.println("  -q: (Optional) Minimize the orchestration up to bisimulation before its export, writing the representative of each state to <orchestration>.map.");
+        System.out.println("  -e: (Optional) Check that the orchestration is equivalent to the supervisor of the given CIF3 file, e.g. synthesised by ESCET; exits with code 3 if not.");
+        System.out.println("  -l: (Optional) Stop the composition once more states are reached, or more transitions kept, than given; also bounds the input of the synthesis.");
+        System.out.println("  -t: (Optional) Stop the composition or the synthesis once the job has run for the given number of seconds.");
+        System.out.println("  -u: (Optional) Stop the composition or the synthesis once the heap in use exceeds the given percentage of the maximum heap, e.g. 90.");
+        System.out.println("  -x: (Optional) When a limit stops the composition, export its explored part to the given CIF3 file.");
+        System.out.println("  -b: Run the jobs listed in the manifest, one job per line with the options above.");
+        System.out.println("  -s: Serve jobs on a Unix-domain socket path, owner-only, or on a loopback TCP port, confining files to the working directory, until stopped.");
+        System.out.println("  -j: (Optional) Number of jobs run in parallel with -b or -s. Default: number of processors");
+        System.out.println("Examples:");
+        System.out.println("  java -jar CIF3connector-1.0-SNAPSHOT.jar -i Dealer.data Player.data -o CardComposition.cif CardOrchestration.cif");
+        System.out.println("  java -jar tool.jar -i CardComposition.data");
+        System.out.println("  java -jar tool.jar -b nightly.txt -j 4");
+    }
+
+    private static void runBatch(String manifest, int workers) {
+        try {
+            if (CIF3ConnectorBatch.run(Path.of(manifest), workers) > 0)
+                System.exit(1);
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
 
-    private static void exportToCif(Automaton<String, Action, State<String>, ModalTransition<String,Action,State<String>, CALabel>> aut, String filename) throws IOException {
-        if (printContractAutomata){
-            AutDataConverter<CALabel> adc = new AutDataConverter<>(CALabel::new);
-            adc.exportMSCA(filename.substring(0,filename.length()-3)+"data",aut);
+    private static void runServer(String address, int workers) {
+        try {
+            CIF3ConnectorServer.serve(address, workers);
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.exit(1);
         }
-        String content = contractAutomatonToCIF3(aut);
-        Path filePath = Path.of(filename);
-        Files.writeString(filePath, content, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private static int parseWorkers(String[] args) {
+        int workers = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length - 1; i++)
+            if ("-j".equals(args[i]))
+                workers = (int) CIF3ConnectorJob.parseNumber("-j", args[i + 1], 1, Integer.MAX_VALUE);
+        return workers;
+    }
+
+    /**
+     * Runs a job: the input automata are composed (unless a single one is given, which is treated as already
+     * composed), the orchestration is synthesised and both are exported to CIF3.
+     * The converter and the agreement are shared, so that several jobs can run in the same JVM, also concurrently,
+     * while each job reads its .data inputs with its own reader, whose interned actions are released with the job.
+     */
+    public static void run(CIF3ConnectorJob job) throws IOException {
+        try (RunMetrics metrics = new RunMetrics(job.reportFile != null, job.progressSeconds)) {
+            metrics.set("inputs", job.describeInputs());
+            metrics.set("outputs", job.getCompCif() + " " + job.getOrchCif());
+            boolean completed = false;
+            try {
+                run(job, metrics);
+                completed = true;
+            } finally {
+                metrics.set("completed", completed);
+                if (job.reportFile != null)
+                    metrics.writeJson(Path.of(job.reportFile));
+            }
+        }
+    }
+
+    private static void run(CIF3ConnectorJob job, RunMetrics metrics) throws IOException {
+        ExplorationLimits limits = job.limits();
+        AutDataReader reader = new AutDataReader();
+        List<Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>>> automata;
+        try (RunMetrics.Phase phase = metrics.phase("import")) {
+            // principals are parsed in parallel, the list keeps the order of the inputs
+            automata = job.inlineInputs.isEmpty()
+                    ? job.getInputFiles().parallelStream().map(f -> {
+                        try {
+                            return importAutomaton(f, reader);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }).collect(Collectors.toList())
+                    : job.inlineInputs.parallelStream().map(data -> {
+                        try {
+                            return reader.read(new ByteArrayInputStream(data));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }).collect(Collectors.toList());
+            final var imported = automata;
+            phase.count("states", () -> imported.stream().mapToLong(Automaton::getNumStates).sum());
+            phase.count("transitions", () -> imported.stream().mapToLong(a -> a.getTransition().size()).sum());
+        }
+
+        ForbiddenStates forbidden = (job.forbiddenSpec == null) ? null : ForbiddenStates.load(Path.of(job.forbiddenSpec));
+
+        if (job.modular) {
+            if (job.equivalenceCif != null)
+                throw new IllegalArgumentException("The modular export computes no orchestration to check against " + job.equivalenceCif);
+            runModular(job, automata, forbidden, metrics);
+            return;
+        }
+
+        // With a cache, unchanged inputs skip straight to copying the outputs
+        CIF3ConnectorCache cache = null;
+        String key = null;
+        if (job.cacheDir != null) {
+            cache = new CIF3ConnectorCache(Path.of(job.cacheDir), job.cacheMaxBytes);
+            key = CIF3ConnectorCache.key(automata, job.cacheSettings(forbidden));
+            boolean hit;
+            Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> cached = null;
+            RunMetrics.Phase phase = metrics.phase("cacheRestore");
+            try {
+                hit = cache.restore(key, job);
+                //an entry evicted after restoring the outputs is a miss, and the results are recomputed
+                if (hit && job.equivalenceCif != null)
+                    hit = (cached = cache.orchestration(key)) != null;
+            } finally {
+                phase.close();
+            }
+            metrics.set("cacheHit", hit);
+            if (hit) {
+                if (cached != null)
+                    checkEquivalence(job, cached, metrics);
+                return;
+            }
+        }
+
+        Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> comp;
+        if (automata.size() == 1) {
+            // Only one automaton: treat as already composed
+            comp = automata.get(0);
+            if (comp.getTransition().parallelStream().anyMatch(ModalTransition::isLazy))
+                throw new RuntimeException("The provided composed automaton contains lazy transitions. ");
+        } else {
+            // Multiple automata: compose, then synthesize
+            List<Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>>> principals;
+            try (RunMetrics.Phase phase = metrics.phase("encodePrincipals")) {
+                final var inputs = automata;
+                phase.count("lazySplit", () -> inputs.stream().mapToLong(a -> a.getTransition().stream().filter(ModalTransition::isLazy).count()).sum());
+                principals = encodePrincipals(automata);
+                phase.count("statesAfter", () -> principals.stream().mapToLong(Automaton::getNumStates).sum());
+                phase.count("transitionsAfter", () -> principals.stream().mapToLong(a -> a.getTransition().size()).sum());
+            }
+            // Forbidden states are pruned on the fly, so that their successors are not explored
+            CompositionMonitor monitor = new CompositionMonitor(
+                    (forbidden == null) ? t -> agreement.negate().test(t.getLabel()) : forbidden.pruning(agreement),
+                    limits);
+            metrics.setComposition(monitor);
+            try (RunMetrics.Phase phase = metrics.phase("composition")) {
+                try {
+                    comp = new MSCACompositionFunction<>(principals, monitor).apply(Integer.MAX_VALUE);
+                    //the resources are checked once more on completion
+                    limits.check("composition", monitor.getReached(), monitor.getKept(), "after " + monitor);
+                } catch (ExplorationLimitException e) {
+                    metrics.set("limitExceeded", e.getMessage());
+                    if (job.partialFile != null)
+                        exportPartial(monitor, Path.of(job.partialFile));
+                    throw e;
+                } finally {
+                    metrics.setComposition(null);
+                    phase.count("statesReached", monitor::getReached);
+                    phase.count("transitionsExamined", monitor::getExamined);
+                }
+                if (comp == null)
+                    throw new IllegalStateException("The composition is empty.");
+                final var composed = comp;
+                phase.count("statesAfter", composed::getNumStates);
+                phase.count("transitionsAfter", () -> composed.getTransition().size());
+            }
+        }
+        if (forbidden != null)
+            comp = forbidden.redirectToSink(comp);
+        // The synthesis starts from the whole composition, so the budget is checked on it once; these are the states
+        // and transitions counted by the monitor, plus the sink state and its transitions added for forbidden states
+        try {
+            limits.check("mpc", comp.getNumStates(), comp.getTransition().size(),
+                    "its input has " + comp.getNumStates() + " states and " + comp.getTransition().size() + " transitions");
+        } catch (ExplorationLimitException e) {
+            metrics.set("limitExceeded", e.getMessage());
+            throw e;
+        }
+        // The export of the composition only reads it, so it overlaps with the synthesis of the orchestration
+        Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> mpc;
+        try (TaskPipeline pipeline = new TaskPipeline(job.printContractAutomata ? 4 : 2)) {
+            final var composition = comp;
+            pipeline.execute(() -> exportToCif(composition, job.getCompCif(), job.renderThreads, metrics.phase("compositionExport")));
+            if (job.printContractAutomata)
+                pipeline.execute(() -> exportSnapshot(composition, job.snapshotFile(job.getCompCif()), job.binarySnapshots, metrics.phase("compositionSnapshotExport")));
+            var orchestration = pipeline.submit(() -> {
+                Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> o;
+                try (RunMetrics.Phase phase = metrics.phase("mpc")) {
+                    phase.count("statesBefore", composition::getNumStates);
+                    phase.count("transitionsBefore", () -> composition.getTransition().size());
+                    final var synthesised = new MpcSynthesisOperator<String>(limits.guard("mpc", agreement)).apply(composition);
+                    phase.count("statesAfter", () -> (synthesised == null) ? 0 : synthesised.getNumStates());
+                    phase.count("transitionsAfter", () -> (synthesised == null) ? 0 : synthesised.getTransition().size());
+                    o = synthesised;
+                }
+                if (!job.minimize || o == null)
+                    return o;
+                // The minimized orchestration replaces the synthesised one in the exports and in the cache
+                try (RunMetrics.Phase phase = metrics.phase("minimization")) {
+                    Bisimulation b = Bisimulation.minimize(o);
+                    b.writeMapping(job.mappingFile());
+                    phase.count("rounds", b::getRounds);
+                    phase.count("statesAfter", () -> b.getQuotient().getNumStates());
+                    phase.count("transitionsAfter", () -> b.getQuotient().getTransition().size());
+                    return b.getQuotient();
+                }
+            });
+            pipeline.then(orchestration, o -> exportToCif(o, job.getOrchCif(), job.renderThreads, metrics.phase("orchestrationExport")));
+            if (job.printContractAutomata)
+                pipeline.then(orchestration, o -> exportSnapshot(o, job.snapshotFile(job.getOrchCif()), job.binarySnapshots, metrics.phase("orchestrationSnapshotExport")));
+            try {
+                pipeline.await();
+            } catch (ExplorationLimitException e) {
+                metrics.set("limitExceeded", e.getMessage());
+                throw e;
+            }
+            mpc = orchestration.join();
+        }
+
+        if (cache != null) {
+            RunMetrics.Phase phase = metrics.phase("cacheStore");
+            try {
+                cache.store(key, comp, mpc, job);
+            } finally {
+                phase.close();
+            }
+        }
+        if (job.equivalenceCif != null)
+            checkEquivalence(job, mpc, metrics);
+    }
+
+    // The composition explored before a limit was exceeded is exported to CIF3 for debugging. It may have no
+    // final states, so it is not a valid contract automaton and is translated from its index
+    private static void exportPartial(CompositionMonitor monitor, Path file) throws IOException {
+        Set<ModalTransition<String, Action, State<String>, CALabel>> explored = monitor.getExplored();
+        Set<State<String>> states = new LinkedHashSet<>();
+        for (ModalTransition<String, Action, State<String>, CALabel> t : explored) {
+            states.add(t.getSource());
+            states.add(t.getTarget());
+        }
+        AutomatonIndex index = new AutomatonIndex(states, explored, cachedCIF3ActionNames());
+        writeAtomically(file, tmp -> {
+            try (Writer out = newCifWriter(tmp)) {
+                indexToCIF3(index, out, 1);
+            }
+        });
+        System.err.println("The explored part of the composition (" + states.size() + " states, "
+                + explored.size() + " transitions) is written to " + file);
+    }
+
+    // The orchestration is checked against a CIF3 supervisor, e.g. synthesised by ESCET from the composition
+    private static void checkEquivalence(CIF3ConnectorJob job,
+                                         Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> mpc,
+                                         RunMetrics metrics) throws IOException {
+        CIF3Equivalence.Result result;
+        try (RunMetrics.Phase phase = metrics.phase("equivalence")) {
+            result = CIF3Equivalence.check(new CIF3Reader().read(Path.of(job.equivalenceCif)), mpc);
+            phase.count("pairsExplored", result::getExplored);
+        }
+        metrics.set("equivalent", result.isEquivalent());
+        if (!result.isEquivalent())
+            throw new EquivalenceException("The orchestration is not equivalent to " + job.equivalenceCif + ": " + result);
+        System.out.println("The orchestration is equivalent to " + job.equivalenceCif + " (" + result.getExplored() + " pairs of states explored)");
+    }
+
+    // The principals are translated one by one into the composition file, their product and the synthesis are left to CIF3
+    private static void runModular(CIF3ConnectorJob job,
+                                   List<Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>>> automata,
+                                   ForbiddenStates forbidden, RunMetrics metrics) throws IOException {
+        List<Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>>> principals;
+        try (RunMetrics.Phase phase = metrics.phase("encodePrincipals")) {
+            phase.count("lazySplit", () -> automata.stream().mapToLong(a -> a.getTransition().stream().filter(ModalTransition::isLazy).count()).sum());
+            principals = encodePrincipals(automata);
+            phase.count("statesAfter", () -> principals.stream().mapToLong(Automaton::getNumStates).sum());
+            phase.count("transitionsAfter", () -> principals.stream().mapToLong(a -> a.getTransition().size()).sum());
+        }
+        try (RunMetrics.Phase phase = metrics.phase("modularExport")) {
+            writeAtomically(Path.of(job.getCompCif()), tmp -> {
+                try (Writer out = newCifWriter(tmp)) {
+                    principalsToModularCIF3(principals, forbidden, out);
+                }
+            });
+            phase.count("bytesWritten", () -> Path.of(job.getCompCif()).toFile().length());
+        }
+    }
+
+    // as below, recording the export in the given phase together with the size of the written file
+    private static void exportToCif(Automaton<String, Action, State<String>, ModalTransition<String,Action,State<String>, CALabel>> aut, String filename, int renderThreads, RunMetrics.Phase phase) throws IOException {
+        try (phase) {
+            exportToCif(aut, filename, renderThreads);
+            phase.count("bytesWritten", () -> Path.of(filename).toFile().length());
+        }
+    }
+
+    private static void exportSnapshot(Automaton<String, Action, State<String>, ModalTransition<String,Action,State<String>, CALabel>> aut, Path file, boolean binary, RunMetrics.Phase phase) throws IOException {
+        try (phase) {
+            exportSnapshot(aut, file, binary);
+            phase.count("bytesWritten", () -> file.toFile().length());
+        }
+    }
+
+    private static void exportToCif(Automaton<String, Action, State<String>, ModalTransition<String,Action,State<String>, CALabel>> aut, String filename, int renderThreads) throws IOException {
+        writeAtomically(Path.of(filename), tmp -> {
+            try (Writer out = newCifWriter(tmp)) {
+                contractAutomatonToCIF3(aut, out, renderThreads);
+            }
+        });
+    }
+
+    // the contract automaton is exported next to its CIF3 translation, either in the .data or in the binary format
+    static void exportSnapshot(Automaton<String, Action, State<String>, ModalTransition<String,Action,State<String>, CALabel>> aut, Path file, boolean binary) throws IOException {
+        writeAtomically(file, tmp -> {
+            if (binary)
+                cab.exportMSCA(tmp.toString(), aut);
+            else
+                bdc.exportMSCA(tmp.toString(), aut);
+        });
+    }
+
+    /**
+     * Imports an automaton from a .data file, read by the given reader, or from a .cab file in the binary format.
+     */
+    static Automaton<String, Action, State<String>, ModalTransition<String,Action,State<String>, CALabel>> importAutomaton(String filename, AutDataReader reader) throws IOException {
+        return filename.endsWith(AutBinaryConverter.EXTENSION) ? cab.importMSCA(filename) : reader.read(Path.of(filename));
+    }
+
+    /**
+     * Writes a file through a temporary sibling, which is then moved over the target.
+     * The target is therefore either left untouched or replaced by the complete file.
+     */
+    static void writeAtomically(Path target, TaskPipeline.IOConsumer<Path> writer) throws IOException {
+        //the temporary file keeps the extension of the target, which some converters rely on
+        Path tmp = target.resolveSibling("." + UUID.randomUUID() + "-" + target.getFileName());
+        try {
+            writer.accept(tmp);
+            try {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Opens a writer for a CIF3 file, truncating it if it already exists.
+     * The returned writer has a bounded buffer, so that the file is written incrementally while it is rendered.
+     */
+    public static Writer newCifWriter(Path filePath) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(
+                Files.newOutputStream(filePath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE),
+                StandardCharsets.UTF_8), CIF_BUFFER_SIZE);
     }
 
     public static String contractAutomatonToCIF3(Automaton<String, Action, State<String>, ModalTransition<String,Action,State<String>, CALabel>> aut) {
-        StringBuilder cif = new StringBuilder();
-        // Collect actions for group section
-        java.util.Set<String> controllable = new java.util.LinkedHashSet<>();
-        java.util.Set<String> uncontrollable = new java.util.LinkedHashSet<>();
-        // Map states to location names
-        java.util.Map<State<String>, String> stateLoc = new java.util.LinkedHashMap<>();
-        int locIdx = 1;
-        for (State<String> s : aut.getStates()) {
-            stateLoc.put(s, "loc" + locIdx++);
-        }
-        // Collect transitions
-        java.util.List<ModalTransition<String,Action,State<String>,CALabel>> transitions = new java.util.ArrayList<>(aut.getTransition());
+        StringWriter cif = new StringWriter();
+        try {
+            contractAutomatonToCIF3(aut, cif);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); //not thrown by a StringWriter
+        }
+        return cif.toString();
+    }
+
+    /**
+     * Translates the automaton into CIF3 and writes it to out, section by section.
+     * Only the int-based index of the automaton is kept in memory besides the automaton itself, the text is
+     * emitted incrementally. The writer is flushed but not closed.
+     */
+    public static void contractAutomatonToCIF3(Automaton<String, Action, State<String>, ModalTransition<String,Action,State<String>, CALabel>> aut, Writer cif) throws IOException {
+        contractAutomatonToCIF3(aut, cif, 1);
+    }
+
+    /**
+     * As {@link #contractAutomatonToCIF3(Automaton, Writer)}, but with parallelism greater than one the locations
+     * are rendered in contiguous shards by that many worker threads.
+     * Shards are written in order, so the output is the same as the sequential one, and at most a few shards
+     * per thread are buffered at any time.
+     */
+    public static void contractAutomatonToCIF3(Automaton<String, Action, State<String>, ModalTransition<String,Action,State<String>, CALabel>> aut, Writer cif, int parallelism) throws IOException {
+        // Index states, outgoing edges and event names once, so that each section is rendered in linear time
+        indexToCIF3(new AutomatonIndex(aut.getStates(), aut.getTransition(), cachedCIF3ActionNames()), cif, parallelism);
+    }
+
+    // The index is also built from transitions that are not a valid automaton, e.g. a part of a composition
+    private static void indexToCIF3(AutomatonIndex index, Writer cif, int parallelism) throws IOException {
         // Group section
         cif.append("group Aut:\n");
-        for (ModalTransition<String,Action,State<String>,CALabel> t : transitions) {
-            String actionName = getCIF3ActionName(t);
-            if (t.isNecessary()) {
-                uncontrollable.add(actionName);
-            } else if (t.isPermitted()) {
-                controllable.add(actionName);
-            }
-        }
-        for (String c : controllable) cif.append("  controllable ").append(c.substring(4)).append(";\n");
-        for (String u : uncontrollable) cif.append("  uncontrollable ").append(u.substring(4)).append(";\n");
+        for (int e = index.uncontrollable.nextClearBit(0); e < index.events.size(); e = index.uncontrollable.nextClearBit(e + 1))
+            cif.append("  controllable ").append(index.events.get(e).substring(4)).append(";\n");
+        for (int e = index.uncontrollable.nextSetBit(0); e >= 0; e = index.uncontrollable.nextSetBit(e + 1))
+            cif.append("  uncontrollable ").append(index.events.get(e).substring(4)).append(";\n");
         cif.append("end\n");
-        // Alphabet
+        // Alphabet: controllable actions first, then the uncontrollable ones
         cif.append("plant automaton statespace:\n  alphabet ");
-        java.util.List<String> allActions = new java.util.ArrayList<>();
-        allActions.addAll(controllable);
-        allActions.addAll(uncontrollable);
-        cif.append(String.join(", ", allActions)).append(";\n");
-        // Locations
-        for (State<String> s : aut.getStates()) {
-            String loc = stateLoc.get(s);
-            Set<ModalTransition<String,Action,State<String>,CALabel>> outgoingTransitions = transitions.parallelStream()
-                    .filter(t->t.getSource().equals(s))
-                    .collect(Collectors.toSet());
-            cif.append("  @state(Aut: \"").append(stateToString(s)).append("\")\n  location ").append(loc);
-            if (!s.isInitial()&&!s.isFinalState()&&outgoingTransitions.isEmpty())
+        String sep = "";
+        for (int e = index.uncontrollable.nextClearBit(0); e < index.events.size(); e = index.uncontrollable.nextClearBit(e + 1)) {
+            cif.append(sep).append(index.events.get(e));
+            sep = ", ";
+        }
+        for (int e = index.uncontrollable.nextSetBit(0); e >= 0; e = index.uncontrollable.nextSetBit(e + 1)) {
+            cif.append(sep).append(index.events.get(e));
+            sep = ", ";
+        }
+        cif.append(";\n");
+        // Locations, named loc1 ... locN following the state indexes
+        if (parallelism <= 1 || index.numStates() <= SHARD_SIZE)
+            appendLocations(index, 0, index.numStates(), cif);
+        else
+            appendLocationsInShards(index, parallelism, cif);
+        cif.append("end\n");
+        cif.flush();
+    }
+
+    private static void appendLocationsInShards(AutomatonIndex index, int parallelism, Writer cif) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        try {
+            //shards are submitted ahead of the writer only up to a bounded window, to bound the buffered text
+            Deque<Future<StringBuilder>> window = new ArrayDeque<>();
+            for (int from = 0; from < index.numStates(); from += SHARD_SIZE) {
+                final int start = from;
+                final int end = Math.min(from + SHARD_SIZE, index.numStates());
+                window.add(pool.submit(() -> {
+                    StringBuilder shard = new StringBuilder();
+                    appendLocations(index, start, end, shard);
+                    return shard;
+                }));
+                if (window.size() >= 2 * parallelism)
+                    cif.append(awaitShard(window.remove()));
+            }
+            while (!window.isEmpty())
+                cif.append(awaitShard(window.remove()));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static StringBuilder awaitShard(Future<StringBuilder> shard) throws IOException {
+        try {
+            return shard.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while rendering CIF3 locations");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // Renders the locations with indexes from (inclusive) to end (exclusive), together with their edges
+    private static void appendLocations(AutomatonIndex index, int from, int end, Appendable cif) throws IOException {
+        for (int i = from; i < end; i++) {
+            State<String> s = index.states.get(i);
+            cif.append("  @state(Aut: \"").append(stateToString(s)).append("\")\n  location loc").append(String.valueOf(i + 1));
+            if (!s.isInitial()&&!s.isFinalState()&&!index.hasOutgoing(i))
                 cif.append(";\n");
             else {
                 cif.append(":\n");
                 if (s.isInitial()) cif.append("    initial;\n");
                 if (s.isFinalState()) cif.append("    marked;\n");
                 // Edges
-                for (ModalTransition<String,Action,State<String>,CALabel> t : outgoingTransitions) {
-                    String edge = getCIF3ActionName(t);
-                    String toLoc = stateLoc.get(t.getTarget());
-                    cif.append("    edge ").append(edge).append(" goto ").append(toLoc).append(";\n");
-                }
+                for (int e = index.edgeStart[i]; e < index.edgeStart[i + 1]; e++)
+                    cif.append("    edge ").append(index.events.get(index.edgeEvent[e])).append(" goto loc").append(String.valueOf(index.edgeTarget[e] + 1)).append(";\n");
             }
         }
-        cif.append("end\n");
-        return cif.toString();
     }
 
     // Helper to convert a state to a comma-separated string
-    private static String stateToString(State<String> s) {
+    static String stateToString(State<String> s) {
         return s.getState().stream().map(AbstractState::getState).collect(java.util.stream.Collectors.joining(","));
     }
 
+    // Helper returning the CIF3 action names of transitions, each distinct label is rendered once per modality
+    static Function<ModalTransition<String,Action,State<String>,CALabel>, String> cachedCIF3ActionNames() {
+        Map<CALabel, String> necessary = new ConcurrentHashMap<>();
+        Map<CALabel, String> permitted = new ConcurrentHashMap<>();
+        return t -> (t.isNecessary() ? necessary : permitted).computeIfAbsent(t.getLabel(), l -> getCIF3ActionName(t));
+    }
+
     // Helper to get the CIF3 action name for a transition
     private static String getCIF3ActionName(ModalTransition<String,Action,State<String>,CALabel> t) {
         CALabel label = t.getLabel();
@@ -202,42 +621,202 @@ public class CIF3Connector {
         }
     }
 
+    /**
+     * Translates the principals, encoded by {@link #encodePrincipals(List)}, into CIF3 with one plant automaton for
+     * each principal, named P1 ... Pn, so that their product is left to the synchronisation of CIF3 rather than
+     * computed explicitly.
+     * An offer of principal i and a request of principal j on the same action are translated into the event of
+     * their match in the composition, shared by the two automata, so that the events and their controllability are
+     * the same as in the translation of the composition. Offers and requests without a partner are not translated,
+     * as the strong agreement prunes them. Committed states become guards on the edges of the other principals,
+     * and forbidden states, if any, requirement invariants.
+     * Urgent offers and requests are not supported, as they are pruned or not depending on the states of the
+     * other principals; lazy requests are not urgent once encoded.
+     * The writer is flushed but not closed.
+     */
+    public static void principalsToModularCIF3(List<Automaton<String,Action,State<String>,ModalTransition<String, Action,State<String>,CALabel>>> principals,
+                                               ForbiddenStates forbidden, Writer cif) throws IOException {
+        int n = principals.size();
+        List<List<State<String>>> states = new ArrayList<>(n);
+        List<Map<State<String>, List<ModalTransition<String,Action,State<String>,CALabel>>>> forwardStars = new ArrayList<>(n);
+        List<Set<String>> offers = new ArrayList<>(n);
+        List<Set<String>> requests = new ArrayList<>(n);
+        for (Automaton<String,Action,State<String>,ModalTransition<String, Action,State<String>,CALabel>> aut : principals) {
+            if (aut.getRank() != 1)
+                throw new IllegalArgumentException("The modular export requires principals of rank 1, found one of rank " + aut.getRank());
+            Set<String> offered = new HashSet<>();
+            Set<String> requested = new HashSet<>();
+            for (ModalTransition<String,Action,State<String>,CALabel> t : aut.getTransition()) {
+                if (t.getLabel().isTau())
+                    continue;
+                if (t.isNecessary())
+                    throw new UnsupportedOperationException("Urgent offers and requests cannot be exported modularly: " + t);
+                (t.getLabel().isOffer() ? offered : requested).add(t.getLabel().getAction().getLabel());
+            }
+            offers.add(offered);
+            requests.add(requested);
+            states.add(new ArrayList<>(aut.getStates()));
+            forwardStars.add(aut.getTransition().stream().collect(Collectors.groupingBy(ModalTransition::getSource)));
+        }
+
+        // Locations are named loc1 ... locN in each automaton, following the order of the states
+        List<Map<State<String>, String>> locations = new ArrayList<>(n);
+        List<String> committed = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Map<State<String>, String> names = new HashMap<>();
+            for (State<String> s : states.get(i))
+                names.put(s, "loc" + (names.size() + 1));
+            locations.add(names);
+            final int p = i;
+            String c = states.get(i).stream()
+                    .filter(s -> s.getState().get(0).isCommitted())
+                    .map(s -> "P" + (p + 1) + "." + names.get(s))
+                    .collect(Collectors.joining(" or "));
+            committed.add(c.isEmpty() ? null : c);
+        }
+
+        // Automata are rendered first, collecting their events for the group section
+        Map<String, Boolean> events = new LinkedHashMap<>();
+        StringBuilder automata = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            StringBuilder body = new StringBuilder();
+            StringBuilder edges = new StringBuilder();
+            Set<String> alphabet = new LinkedHashSet<>();
+            for (State<String> s : states.get(i)) {
+                edges.setLength(0);
+                for (ModalTransition<String,Action,State<String>,CALabel> t : forwardStars.get(i).getOrDefault(s, List.of())) {
+                    String target = locations.get(i).get(t.getTarget());
+                    CALabel label = t.getLabel();
+                    if (label.isTau()) {
+                        String event = (t.isNecessary() ? "Aut.u_" : "Aut.c_") + label.getAction() + "_tau_" + (i + 1);
+                        appendModularEdge(edges, event, committedGuard(committed, i, -1), target);
+                        events.put(event, !t.isNecessary());
+                        alphabet.add(event);
+                        continue;
+                    }
+                    String action = label.getAction().getLabel();
+                    boolean offer = label.isOffer();
+                    for (int j = 0; j < n; j++) {
+                        if (j == i || !(offer ? requests : offers).get(j).contains(action))
+                            continue;
+                        String event = "Aut.c_" + action + "_match_" + ((offer ? i : j) + 1) + "_" + ((offer ? j : i) + 1);
+                        // the guard of a match is put on the edges of the offerer only
+                        appendModularEdge(edges, event, offer ? committedGuard(committed, i, j) : "", target);
+                        events.put(event, true);
+                        alphabet.add(event);
+                    }
+                }
+                BasicState<String> bs = s.getState().get(0);
+                body.append("  @state(Aut: \"").append(bs.getState()).append("\")\n  location ").append(locations.get(i).get(s));
+                if (!bs.isInitial() && !bs.isFinalState() && edges.length() == 0)
+                    body.append(";\n");
+                else {
+                    body.append(":\n");
+                    if (bs.isInitial()) body.append("    initial;\n");
+                    if (bs.isFinalState()) body.append("    marked;\n");
+                    body.append(edges);
+                }
+            }
+            automata.append("plant automaton P").append(i + 1).append(":\n");
+            if (!alphabet.isEmpty())
+                automata.append("  alphabet ").append(String.join(", ", alphabet)).append(";\n");
+            automata.append(body).append("end\n");
+        }
+
+        // Group section: controllable actions first, then the uncontrollable ones
+        cif.append("group Aut:\n");
+        for (Map.Entry<String, Boolean> e : events.entrySet())
+            if (e.getValue())
+                cif.append("  controllable ").append(e.getKey().substring(4)).append(";\n");
+        for (Map.Entry<String, Boolean> e : events.entrySet())
+            if (!e.getValue())
+                cif.append("  uncontrollable ").append(e.getKey().substring(4)).append(";\n");
+        cif.append("end\n");
+        cif.append(automata);
+        if (forbidden != null) {
+            List<Map<String, List<String>>> locationsByLabel = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                Map<String, List<String>> byLabel = new HashMap<>();
+                for (State<String> s : states.get(i))
+                    byLabel.computeIfAbsent(s.getState().get(0).getState(), l -> new ArrayList<>()).add("P" + (i + 1) + "." + locations.get(i).get(s));
+                locationsByLabel.add(byLabel);
+            }
+            for (String requirement : forbidden.toCIF3Requirements(locationsByLabel))
+                cif.append(requirement).append("\n");
+        }
+        cif.flush();
+    }
+
+    private static void appendModularEdge(StringBuilder edges, String event, String guard, String target) {
+        edges.append("    edge ").append(event);
+        if (!guard.isEmpty())
+            edges.append(" when ").append(guard);
+        edges.append(" goto ").append(target).append(";\n");
+    }
+
+    // In the composition, while some principals are in committed states only the transitions of the first of them
+    // are enabled. The guard of an event of principals i and j (or -1) thus requires each other principal k to be
+    // out of its committed states, unless a principal before k is in a committed state.
+    private static String committedGuard(List<String> committed, int i, int j) {
+        StringJoiner guard = new StringJoiner(" and ");
+        for (int k = 0; k < committed.size(); k++) {
+            if (k == i || k == j || committed.get(k) == null)
+                continue;
+            StringBuilder clause = new StringBuilder("(not (").append(committed.get(k)).append(")");
+            for (int m = 0; m < k; m++)
+                if (committed.get(m) != null)
+                    clause.append(" or ").append(committed.get(m));
+            guard.add(clause.append(")"));
+        }
+        return guard.toString();
+    }
+
+    /**
+     * Encodes the lazy transitions of the principals: each one is unfolded into two linked transitions, one
+     * uncontrollable and one controllable, through an intermediate state.
+     * Principals are encoded in parallel, each one in a single pass over its transitions, and the idle actions,
+     * the labels of the uncontrollable transitions and the intermediate states are interned for each principal,
+     * so that the composition hashes and compares shared objects.
+     */
     public static  List<Automaton<String,Action,State<String>,ModalTransition<String, Action,State<String>,CALabel>>> encodePrincipals(List<Automaton<String,Action,State<String>,ModalTransition<String, Action,State<String>,CALabel>>> laut){
-        return laut.stream()
-                .map(aut->
-                {
-                    //each lazy transition is unfolded into two linked transitions, one uncontrollable and one controllable
-                    Map<ModalTransition<String, Action, State<String>, CALabel>, List<ModalTransition<String, Action, State<String>, CALabel>>> map =
-                            aut.getTransition().parallelStream()
-                                    .collect(Collectors.toMap(t -> t, t -> {
-                                        if (!t.getModality().equals(ModalTransition.Modality.LAZY))
-                                            return List.of(t);
-                                        else {
-                                            List<Action> label = IntStream.range(0, t.getLabel().getRank())
-                                                    .mapToObj(i -> new IdleAction())
-                                                    .collect(Collectors.toList());
-
-                                            List<BasicState<String>> intermediate = new ArrayList<>(t.getSource().getState());
-
-                                            //the checks at the beginning of the method ensures that only necessary requests are lazy, and principals cannot have matches
-                                            if (t.getLabel().isRequest()) {
-                                                label.set(t.getLabel().getRequester(), new TauAction(t.getLabel().getAction().getLabel()));//the label cannot be a request
-                                                String stateLabel = t.getSource().getState().get(t.getLabel().getRequester()).getState() + "_" + t.getLabel().getAction().getLabel() + "_" + t.getTarget().getState().get(t.getLabel().getRequester()).getState();
-                                                intermediate.set(t.getLabel().getRequester(), new BasicState<>(stateLabel, false, false, false));
-                                            }
-
-                                            State<String> intermediateState = new State<>(intermediate);
-                                            ModalTransition<String, Action, State<String>, CALabel> t1 = new ModalTransition<>(t.getSource(), new CALabel(label), intermediateState, URGENT);
-                                            ModalTransition<String, Action, State<String>, CALabel> t2 = new ModalTransition<>(intermediateState, t.getLabel(), t.getTarget(), PERMITTED);
-                                            return List.of(t1, t2);
-                                        }
-                                    }));
-
-                    return new Automaton<>(
-                            aut.getTransition().parallelStream()
-                                    .flatMap(t -> map.get(t).stream())
-                                    .collect(Collectors.toSet()));
-                }).collect(Collectors.toList());
+        return laut.parallelStream()
+                .map(CIF3Connector::encodeLazyTransitions)
+                .collect(Collectors.toList());
+    }
+
+    private static Automaton<String,Action,State<String>,ModalTransition<String, Action,State<String>,CALabel>> encodeLazyTransitions(Automaton<String,Action,State<String>,ModalTransition<String, Action,State<String>,CALabel>> aut) {
+        Set<ModalTransition<String, Action, State<String>, CALabel>> tr = aut.getTransition();
+        Set<ModalTransition<String, Action, State<String>, CALabel>> encoded = new HashSet<>(2 * tr.size());
+        Action idle = new IdleAction();
+        Map<CALabel, CALabel> uncontrollableLabels = new HashMap<>();
+        Map<List<Object>, BasicState<String>> intermediateBasicStates = new HashMap<>();
+        Map<List<BasicState<String>>, State<String>> intermediateStates = new HashMap<>();
+        for (ModalTransition<String, Action, State<String>, CALabel> t : tr) {
+            if (!t.isLazy()) {
+                encoded.add(t);
+                continue;
+            }
+            //only necessary requests are lazy, and principals cannot have matches
+            CALabel label = t.getLabel();
+            CALabel uncontrollable = uncontrollableLabels.computeIfAbsent(label, l -> {
+                List<Action> content = new ArrayList<>(Collections.nCopies(l.getRank(), idle));
+                if (l.isRequest())
+                    content.set(l.getRequester(), new TauAction(l.getAction().getLabel()));
+                return new CALabel(content);
+            });
+            List<BasicState<String>> intermediate = new ArrayList<>(t.getSource().getState());
+            if (label.isRequest()) {
+                int requester = label.getRequester();
+                BasicState<String> source = intermediate.get(requester);
+                BasicState<String> target = t.getTarget().getState().get(requester);
+                intermediate.set(requester, intermediateBasicStates.computeIfAbsent(List.of(source, label.getAction(), target),
+                        k -> new BasicState<>(source.getState() + "_" + label.getAction().getLabel() + "_" + target.getState(), false, false, false)));
+            }
+            State<String> intermediateState = intermediateStates.computeIfAbsent(intermediate, State::new);
+            encoded.add(new ModalTransition<>(t.getSource(), uncontrollable, intermediateState, URGENT));
+            encoded.add(new ModalTransition<>(intermediateState, label, t.getTarget(), PERMITTED));
+        }
+        return new Automaton<>(encoded);
     }
 
 }
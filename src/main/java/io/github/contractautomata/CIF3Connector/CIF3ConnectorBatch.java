@@ -0,0 +1,67 @@
+package io.github.contractautomata.CIF3Connector;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the jobs listed in a manifest file within a single JVM, on a bounded pool of workers.
+ * Each non-empty line of the manifest not starting with # holds the arguments of one job, in the same syntax of
+ * the command line, e.g. "-i Dealer.data Player.data -o CardComposition.cif CardOrchestration.cif".
+ * A failing job does not affect the other ones, a summary of the outcomes is printed at the end.
+ */
+public class CIF3ConnectorBatch {
+
+    /**
+     * Runs the jobs of the manifest with the given number of workers.
+     * @return the number of failed jobs
+     */
+    public static int run(Path manifest, int workers) throws IOException {
+        List<String> lines = Files.readAllLines(manifest);
+        List<Integer> lineNumbers = new ArrayList<>();
+        List<Future<String>> outcomes = new ArrayList<>();
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, workers));
+        try {
+            for (int i = 0; i < lines.size(); i++) {
+                String line = lines.get(i).trim();
+                if (line.isEmpty() || line.startsWith("#"))
+                    continue;
+                lineNumbers.add(i + 1);
+                outcomes.add(pool.submit(() -> runJob(line)));
+            }
+
+            int failed = 0;
+            for (int i = 0; i < outcomes.size(); i++) {
+                try {
+                    System.out.println("[ok] line " + lineNumbers.get(i) + ": " + outcomes.get(i).get());
+                } catch (ExecutionException e) {
+                    failed++;
+                    System.out.println("[failed] line " + lineNumbers.get(i) + ": " + e.getCause());
+                }
+            }
+            System.out.println("Batch completed: " + (outcomes.size() - failed) + " succeeded, " + failed + " failed.");
+            return failed;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Batch interrupted", e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static String runJob(String line) throws IOException {
+        long start = System.nanoTime();
+        CIF3ConnectorJob job = CIF3ConnectorJob.parse(line.split("\\s+"));
+        if (job.getInputFiles().isEmpty())
+            throw new IllegalArgumentException("No input files specified.");
+        CIF3Connector.run(job);
+        return job + " (" + (System.nanoTime() - start) / 1_000_000 + " ms)";
+    }
+}
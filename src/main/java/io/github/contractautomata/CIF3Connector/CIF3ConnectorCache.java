@@ -0,0 +1,266 @@
+package io.github.contractautomata.CIF3Connector;
+
+import io.github.contractautomata.catlib.automaton.Automaton;
+import io.github.contractautomata.catlib.automaton.label.CALabel;
+import io.github.contractautomata.catlib.automaton.label.action.Action;
+import io.github.contractautomata.catlib.automaton.state.BasicState;
+import io.github.contractautomata.catlib.automaton.state.State;
+import io.github.contractautomata.catlib.automaton.transition.ModalTransition;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * On-disk cache of the results of the connector, shared by runs and processes using the same directory.
+ * An entry is keyed by a hash of the normalized input automata, their order and the settings affecting the
+ * results, and stores the composed automaton, the orchestration and their CIF3 translations.
+ * The automata are stored in the binary format, and converted to the .data format on restore if requested.
+ * <p>
+ * Entries are written in a temporary directory and published with an atomic rename, so that readers never see
+ * partial entries, or with a plain move under the lock file where the file system has no atomic renames. Hits refresh the modification time of the entry, which is used to evict the least recently used
+ * entries when the cache exceeds its size limit. Eviction is serialised among processes by a lock file.
+ */
+public class CIF3ConnectorCache {
+
+    private static final String COMPOSITION_CAB = "composition" + AutBinaryConverter.EXTENSION;
+    private static final String ORCHESTRATION_CAB = "orchestration" + AutBinaryConverter.EXTENSION;
+    private static final String COMPOSITION_CIF = "composition.cif";
+    private static final String ORCHESTRATION_CIF = "orchestration.cif";
+    private static final String ORCHESTRATION_MAP = "orchestration.map";
+    private static final String TMP_PREFIX = "tmp-";
+    private static final String LOCK_FILE = ".lock";
+
+    //file locks are held by the whole JVM, concurrent jobs of the same process are serialised on this monitor
+    private static final Object evictionMonitor = new Object();
+
+    private final AutBinaryConverter cab = new AutBinaryConverter();
+    private final Path dir;
+    private final long maxBytes;
+
+    public CIF3ConnectorCache(Path dir, long maxBytes) throws IOException {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(dir);
+    }
+
+    /**
+     * Computes the key of the results of the given input automata.
+     * Automata are normalized by sorting their transitions, so the key depends neither on the layout of the input files
+     * nor on the iteration order of the transitions.
+     */
+    public static String key(List<Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>>> automata, String settings) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(settings.getBytes(StandardCharsets.UTF_8));
+            for (Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> aut : automata) {
+                md.update((byte) '\n');
+                for (String t : aut.getTransition().parallelStream()
+                        .map(CIF3ConnectorCache::normalize)
+                        .sorted()
+                        .collect(Collectors.toList()))
+                    md.update((t + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(md.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String normalize(ModalTransition<String, Action, State<String>, CALabel> t) {
+        return normalize(t.getSource()) + "|" + t.getLabel().getContent() + "|" + normalize(t.getTarget()) + "|" + t.getModality();
+    }
+
+    private static String normalize(State<String> s) {
+        return s.getState().stream()
+                .map(CIF3ConnectorCache::normalize)
+                .collect(Collectors.joining(",", "[", "]"));
+    }
+
+    private static String normalize(BasicState<String> s) {
+        return s.getState() + (s.isInitial() ? "^i" : "") + (s.isFinalState() ? "^f" : "") + (s.isCommitted() ? "^c" : "");
+    }
+
+    /**
+     * Copies the cached results of the key to the outputs of the job.
+     * @return false if the key is not in the cache, or its entry has been evicted while copying
+     */
+    public boolean restore(String key, CIF3ConnectorJob job) throws IOException {
+        Path entry = dir.resolve(key);
+        if (!Files.isDirectory(entry))
+            return false;
+        try {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+            copyOut(entry.resolve(COMPOSITION_CIF), Path.of(job.getCompCif()));
+            copyOut(entry.resolve(ORCHESTRATION_CIF), Path.of(job.getOrchCif()));
+            if (job.minimize)
+                copyOut(entry.resolve(ORCHESTRATION_MAP), job.mappingFile());
+            if (job.printContractAutomata) {
+                restoreSnapshot(entry.resolve(COMPOSITION_CAB), job, job.getCompCif());
+                restoreSnapshot(entry.resolve(ORCHESTRATION_CAB), job, job.getOrchCif());
+            }
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Loads the cached orchestration of the key, or returns null if the key is not in the cache.
+     */
+    public Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> orchestration(String key) throws IOException {
+        try {
+            return cab.importMSCA(dir.resolve(key).resolve(ORCHESTRATION_CAB).toString());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stores the results of the key, whose CIF3 translations have already been written to the outputs of the job,
+     * then evicts the least recently used entries exceeding the size limit.
+     */
+    public void store(String key,
+                      Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> comp,
+                      Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> mpc,
+                      CIF3ConnectorJob job) throws IOException {
+        Path entry = dir.resolve(key);
+        if (Files.isDirectory(entry))
+            return;
+        Path tmp = Files.createDirectory(dir.resolve(TMP_PREFIX + UUID.randomUUID()));
+        try {
+            cab.exportMSCA(tmp.resolve(COMPOSITION_CAB).toString(), comp);
+            cab.exportMSCA(tmp.resolve(ORCHESTRATION_CAB).toString(), mpc);
+            Files.copy(Path.of(job.getCompCif()), tmp.resolve(COMPOSITION_CIF));
+            Files.copy(Path.of(job.getOrchCif()), tmp.resolve(ORCHESTRATION_CIF));
+            if (job.minimize)
+                Files.copy(job.mappingFile(), tmp.resolve(ORCHESTRATION_MAP));
+            try {
+                Files.move(tmp, entry, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                //readers may then miss files of the entry, which they take as a miss
+                System.err.println("Warning: " + dir + " does not support atomic renames, the entry is published non-atomically");
+                locked(() -> {
+                    if (!Files.isDirectory(entry))
+                        Files.move(tmp, entry);
+                });
+            }
+        } catch (FileAlreadyExistsException e) {
+            //another run stored the same entry in the meanwhile
+        } catch (IOException e) {
+            if (!Files.isDirectory(entry))
+                throw e;
+        } finally {
+            if (Files.exists(tmp))
+                deleteRecursively(tmp);
+        }
+        evict();
+    }
+
+    // runs the action holding the lock of the cache directory, shared with other processes
+    private void locked(TaskPipeline.IOAction action) throws IOException {
+        synchronized (evictionMonitor) {
+            try (FileChannel ch = FileChannel.open(dir.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                FileLock lock = ch.lock();
+                try {
+                    action.run();
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    private void evict() throws IOException {
+        locked(() -> {
+            List<Path> entries;
+            try (Stream<Path> s = Files.list(dir)) {
+                entries = s.filter(Files::isDirectory)
+                        .filter(p -> !p.getFileName().toString().startsWith(TMP_PREFIX))
+                        .collect(Collectors.toList());
+            }
+            List<long[]> info = new ArrayList<>(); //last modified time and size, by entry
+            long total = 0;
+            for (Path e : entries) {
+                long size = size(e);
+                info.add(new long[]{Files.getLastModifiedTime(e).toMillis(), size});
+                total += size;
+            }
+            List<Integer> byAge = new ArrayList<>();
+            for (int i = 0; i < entries.size(); i++)
+                byAge.add(i);
+            byAge.sort(Comparator.comparingLong(i -> info.get(i)[0]));
+            for (int i : byAge) {
+                if (total <= maxBytes)
+                    break;
+                //the entry is renamed first, so that readers either copy a whole entry or miss it
+                Path victim = dir.resolve(TMP_PREFIX + UUID.randomUUID());
+                try {
+                    Files.move(entries.get(i), victim, StandardCopyOption.ATOMIC_MOVE);
+                    deleteRecursively(victim);
+                } catch (NoSuchFileException e) {
+                    //already evicted
+                }
+                total -= info.get(i)[1];
+            }
+        });
+    }
+
+    private static void copyOut(Path from, Path to) throws IOException {
+        CIF3Connector.writeAtomically(to, tmp -> Files.copy(from, tmp));
+    }
+
+    private void restoreSnapshot(Path from, CIF3ConnectorJob job, String cif) throws IOException {
+        if (job.binarySnapshots)
+            copyOut(from, job.snapshotFile(cif));
+        else
+            CIF3Connector.exportSnapshot(cab.importMSCA(from.toString()), job.snapshotFile(cif), false);
+    }
+
+    private static long size(Path entry) throws IOException {
+        try (Stream<Path> s = Files.walk(entry)) {
+            return s.filter(Files::isRegularFile).mapToLong(p -> {
+                try {
+                    return Files.size(p);
+                } catch (IOException e) {
+                    return 0;
+                }
+            }).sum();
+        } catch (UncheckedIOException e) {
+            return 0;
+        }
+    }
+
+    static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> {
+                try {
+                    Files.deleteIfExists(p);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package io.github.contractautomata.CIF3Connector;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The settings of a single run of the connector: the input automata, the output CIF3 files and the options.
+ * A job is parsed from the same arguments accepted on the command line, either from the command line itself or
+ * from a line of a batch manifest.
+ */
+public class CIF3ConnectorJob {
+    final List<String> inputFiles = new ArrayList<>();
+    final List<byte[]> inlineInputs = new ArrayList<>(); //.data automata received by the server, used instead of the files
+    String compCif = "Composition.cif";
+    String orchCif = "Orchestration.cif";
+    boolean printContractAutomata = false;
+    boolean binarySnapshots = false;
+    int renderThreads = 1;
+    String cacheDir = null;
+    String forbiddenSpec = null;
+    long cacheMaxBytes = 1L << 30;
+    String reportFile = null;
+    int progressSeconds = 0;
+    boolean modular = false;
+    boolean minimize = false;
+    String equivalenceCif = null;
+    long maxStates = 0;
+    long maxTransitions = 0;
+    int timeoutSeconds = 0;
+    int heapPercent = 0;
+    String partialFile = null;
+
+    public static CIF3ConnectorJob parse(String[] args) {
+        CIF3ConnectorJob job = new CIF3ConnectorJob();
+        // Simple argument parsing
+        for (int i = 0; i < args.length; i++) {
+            if ("-i".equals(args[i]) && i + 1 < args.length) {
+                i++;
+                while (i < args.length && !args[i].startsWith("-")) {
+                    if (args[i].endsWith(".data") || args[i].endsWith(AutBinaryConverter.EXTENSION)) job.inputFiles.add(args[i]);
+                    i++;
+                }
+                i--;
+            } else if ("-o".equals(args[i]) && i + 1 < args.length) {
+                i++;
+                if (i < args.length && args[i].endsWith(".cif")) job.compCif = args[i++];
+                if (i < args.length && args[i].endsWith(".cif")) job.orchCif = args[i];
+                else i--; //the next argument is not an output name
+            } else if ("-a".equals(args[i])){
+                job.printContractAutomata=true;
+                if (i + 1 < args.length && "cab".equals(args[i + 1])) {
+                    job.binarySnapshots = true;
+                    i++;
+                }
+            } else if ("-p".equals(args[i]) && i + 1 < args.length) {
+                job.renderThreads = (int) parseNumber(args[i], args[++i], 1, Integer.MAX_VALUE);
+            } else if ("-f".equals(args[i]) && i + 1 < args.length) {
+                job.forbiddenSpec = args[++i];
+            } else if ("-c".equals(args[i]) && i + 1 < args.length) {
+                job.cacheDir = args[++i];
+                if (i + 1 < args.length && args[i + 1].chars().allMatch(Character::isDigit))
+                    job.cacheMaxBytes = parseNumber("-c", args[++i], 1, Long.MAX_VALUE >> 20) << 20;
+            } else if ("-r".equals(args[i]) && i + 1 < args.length) {
+                job.reportFile = args[++i];
+            } else if ("-v".equals(args[i]) && i + 1 < args.length) {
+                job.progressSeconds = (int) parseNumber(args[i], args[++i], 0, Integer.MAX_VALUE);
+            } else if ("-m".equals(args[i])) {
+                job.modular = true;
+            } else if ("-q".equals(args[i])) {
+                job.minimize = true;
+            } else if ("-e".equals(args[i]) && i + 1 < args.length) {
+                job.equivalenceCif = args[++i];
+            } else if ("-l".equals(args[i]) && i + 1 < args.length) {
+                job.maxStates = parseNumber(args[i], args[++i], 0, Long.MAX_VALUE);
+                if (i + 1 < args.length && args[i + 1].chars().allMatch(Character::isDigit))
+                    job.maxTransitions = parseNumber("-l", args[++i], 0, Long.MAX_VALUE);
+            } else if ("-t".equals(args[i]) && i + 1 < args.length) {
+                job.timeoutSeconds = (int) parseNumber(args[i], args[++i], 0, Integer.MAX_VALUE);
+            } else if ("-u".equals(args[i]) && i + 1 < args.length) {
+                job.heapPercent = (int) parseNumber(args[i], args[++i], 0, 100);
+            } else if ("-x".equals(args[i]) && i + 1 < args.length) {
+                job.partialFile = args[++i];
+            }
+        }
+        return job;
+    }
+
+    /**
+     * Parses the value of a numeric option.
+     * @throws IllegalArgumentException if the value is not a number between min and max
+     */
+    static long parseNumber(String option, String value, long min, long max) {
+        try {
+            long n = Long.parseLong(value);
+            if (n >= min && n <= max)
+                return n;
+        } catch (NumberFormatException e) {
+            //reported below
+        }
+        throw new IllegalArgumentException("Invalid value " + value + " of " + option + ", expected a number between "
+                + min + " and " + max + ".");
+    }
+
+    public List<String> getInputFiles() {
+        return inputFiles;
+    }
+
+    /**
+     * Returns the files and directories read or written by the job, as given in its options.
+     */
+    List<String> files() {
+        List<String> files = new ArrayList<>(inputFiles);
+        for (String f : new String[]{compCif, orchCif, cacheDir, forbiddenSpec, reportFile, equivalenceCif, partialFile})
+            if (f != null)
+                files.add(f);
+        return files;
+    }
+
+    /**
+     * Returns the number of input automata, either files or inline ones.
+     */
+    int numInputs() {
+        return inlineInputs.isEmpty() ? inputFiles.size() : inlineInputs.size();
+    }
+
+    String describeInputs() {
+        return inlineInputs.isEmpty() ? String.join(" ", inputFiles) : inlineInputs.size() + " inline automata";
+    }
+
+    public String getCompCif() {
+        return compCif;
+    }
+
+    public String getOrchCif() {
+        return orchCif;
+    }
+
+    /**
+     * Returns the file where the contract automaton translated into the given CIF3 file is exported, with -a.
+     */
+    Path snapshotFile(String cif) {
+        return Path.of(cif.substring(0, cif.length() - 3) + (binarySnapshots ? AutBinaryConverter.EXTENSION.substring(1) : "data"));
+    }
+
+    /**
+     * Returns the file mapping the states of the orchestration to their representatives, with -q.
+     */
+    Path mappingFile() {
+        return Path.of(orchCif.substring(0, orchCif.length() - 3) + "map");
+    }
+
+    /**
+     * Returns the limits of the job, starting its deadline.
+     */
+    ExplorationLimits limits() {
+        return new ExplorationLimits(maxStates, maxTransitions, timeoutSeconds, heapPercent);
+    }
+
+    /**
+     * Returns a description of the settings affecting the results of the job, which is part of its cache key.
+     * Output names, performance settings and limits are not part of it, as only completed runs are cached.
+     */
+    String cacheSettings(ForbiddenStates forbidden) {
+        return "v2;agreement=StrongAgreement;composed=" + (numInputs() == 1)
+                + ";forbidden=" + (forbidden == null ? "" : forbidden.toString())
+                + (minimize ? ";minimized" : "");
+    }
+
+    @Override
+    public String toString() {
+        return describeInputs() + " -> " + compCif + " " + orchCif;
+    }
+}
@@ -0,0 +1,297 @@
+package io.github.contractautomata.CIF3Connector;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Long-running mode of the connector, serving jobs on a local socket so that the JVM stays warm between requests.
+ * The server listens either on a Unix-domain socket, which only its owner can connect to, or on a loopback TCP port,
+ * which any local user can connect to: jobs received over TCP may then only read and write files inside the working
+ * directory of the server. Each connection is read on its own thread, so that idle clients do not hold workers, and
+ * the jobs it requests run on a bounded pool of workers. Both pools are bounded: a connection beyond
+ * {@value #CONNECTIONS_PER_WORKER} per worker is answered with {@code ERROR} and closed.
+ * A connection carries a sequence of requests, each answered before reading the next one.
+ * <p>
+ * The protocol is line-based (UTF-8):
+ * <ul>
+ *     <li>{@code RUN <options>}: runs a job with the options of the command line, answered with
+ *     {@code OK <composition.cif> <orchestration.cif>};</li>
+ *     <li>{@code INLINE <n> <options>}: followed by n blocks {@code DATA <k>}, each followed by k lines of a .data
+ *     automaton. If the options contain -o the answer is as for RUN, otherwise the answer is
+ *     {@code CIF <k>} followed by k lines of the composition, then {@code CIF <k>} followed by k lines of the
+ *     orchestration;</li>
+ *     <li>with the option -m, which exports no orchestration, answers only carry the composition;</li>
+ *     <li>{@code QUIT}: closes the connection.</li>
+ * </ul>
+ * A failing request is answered with {@code ERROR <message>} and the connection stays open, unless the request is
+ * malformed so that its inline automata cannot be skipped, in which case the connection is closed after the answer.
+ */
+public class CIF3ConnectorServer {
+
+    private static final int S_IFMT = 0170000; //the type bits of a unix mode
+    private static final int S_IFSOCK = 0140000;
+    private static final int CONNECTIONS_PER_WORKER = 4;
+
+    /**
+     * Serves requests until the process is stopped.
+     * @param address a port number, to listen on the loopback interface, or the path of a Unix-domain socket, which
+     *                may only replace a stale socket file
+     * @param workers the maximum number of jobs run concurrently
+     */
+    public static void serve(String address, int workers) throws IOException {
+        ServerSocketChannel server;
+        SocketAddress local;
+        Path root; //the directory confining the files of the jobs, if any
+        if (address.chars().allMatch(Character::isDigit)) {
+            server = ServerSocketChannel.open(StandardProtocolFamily.INET);
+            local = new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address));
+            root = Path.of("").toRealPath();
+        } else {
+            local = UnixDomainSocketAddress.of(address);
+            removeStaleSocket((UnixDomainSocketAddress) local);
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            root = null;
+        }
+
+        int size = Math.max(1, workers);
+        ExecutorService jobs = Executors.newFixedThreadPool(size);
+        ExecutorService connections = new ThreadPoolExecutor(0, size * CONNECTIONS_PER_WORKER,
+                60, TimeUnit.SECONDS, new SynchronousQueue<>());
+        try (server) {
+            server.bind(local);
+            if (root == null)
+                restrictToOwner(((UnixDomainSocketAddress) local).getPath());
+            System.out.println("CIF3Connector listening on " + server.getLocalAddress());
+            while (true) {
+                SocketChannel client = server.accept();
+                try {
+                    connections.execute(() -> serve(client, jobs, root));
+                } catch (RejectedExecutionException e) {
+                    refuse(client);
+                }
+            }
+        } finally {
+            connections.shutdownNow();
+            jobs.shutdownNow();
+        }
+    }
+
+    // a file at the address is only deleted if it is a socket that no server is listening on
+    private static void removeStaleSocket(UnixDomainSocketAddress address) throws IOException {
+        Path path = address.getPath();
+        if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS))
+            return;
+        if (!isSocket(path))
+            throw new IOException(path + " exists and is not a socket");
+        try (SocketChannel probe = SocketChannel.open(address)) {
+            throw new IOException("Another server is listening on " + probe.getRemoteAddress());
+        } catch (ConnectException e) {
+            Files.delete(path);
+        }
+    }
+
+    // the socket is bound before any connection is accepted, so that no other user can connect
+    private static void restrictToOwner(Path socket) throws IOException {
+        try {
+            Files.setPosixFilePermissions(socket, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException e) {
+            System.err.println("Warning: the permissions of " + socket + " cannot be restricted to its owner");
+        }
+    }
+
+    private static void refuse(SocketChannel client) {
+        try (client; Writer out = new OutputStreamWriter(Channels.newOutputStream(client), StandardCharsets.UTF_8)) {
+            out.write("ERROR Too many connections\n");
+        } catch (IOException e) {
+            //the client is gone already
+        }
+    }
+
+    private static boolean isSocket(Path path) throws IOException {
+        try {
+            return ((Integer) Files.getAttribute(path, "unix:mode", LinkOption.NOFOLLOW_LINKS) & S_IFMT) == S_IFSOCK;
+        } catch (UnsupportedOperationException e) {
+            //without the unix attribute view, sockets are among the files neither regular, directory nor link
+            return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).isOther();
+        }
+    }
+
+    private static void serve(SocketChannel client, ExecutorService jobs, Path root) {
+        try (client;
+             BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(client), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(client), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null && !"QUIT".equals(line.trim())) {
+                if (line.isBlank())
+                    continue;
+                try {
+                    handle(line.trim(), in, out, jobs, root);
+                } catch (ProtocolException e) {
+                    //the rest of the request cannot be told apart from the next one
+                    out.write("ERROR " + e.getMessage() + "\n");
+                    out.flush();
+                    return;
+                } catch (IOException | RuntimeException e) {
+                    out.write("ERROR " + String.valueOf(e.getMessage()).replace('\n', ' ') + "\n");
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // the job runs on the bounded pool of workers, while the thread of the connection waits for its outcome
+    private static void run(CIF3ConnectorJob job, ExecutorService jobs) throws IOException {
+        Future<?> outcome = jobs.submit(() -> {
+            CIF3Connector.run(job);
+            return null;
+        });
+        try {
+            outcome.get();
+        } catch (InterruptedException e) {
+            outcome.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running the job", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static void handle(String request, BufferedReader in, Writer out, ExecutorService jobs, Path root) throws IOException {
+        String[] tokens = request.split("\\s+");
+        switch (tokens[0]) {
+            case "RUN":
+                CIF3ConnectorJob job = CIF3ConnectorJob.parse(Arrays.copyOfRange(tokens, 1, tokens.length));
+                if (job.getInputFiles().isEmpty())
+                    throw new IllegalArgumentException("No input files specified.");
+                checkConfined(job, root);
+                run(job, jobs);
+                out.write(okAnswer(job));
+                break;
+            case "INLINE":
+                if (tokens.length < 2 || !tokens[1].chars().allMatch(Character::isDigit))
+                    throw new ProtocolException("Expected INLINE <automata> <options>");
+                handleInline(lineCount(tokens[1]), Arrays.copyOfRange(tokens, 2, tokens.length), in, out, jobs, root);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown request " + tokens[0]);
+        }
+    }
+
+    // the automata are read in full before parsing the options and running the job, so that the connection stays in
+    // sync also on failures, and they are parsed from memory
+    private static void handleInline(int count, String[] options, BufferedReader in, Writer out, ExecutorService jobs, Path root) throws IOException {
+        List<byte[]> automata = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String header = in.readLine();
+            if (header == null || !header.startsWith("DATA ") || !header.substring(5).trim().chars().allMatch(Character::isDigit))
+                throw new ProtocolException("Expected DATA <lines>");
+            automata.add(readData(in, lineCount(header.substring(5).trim())));
+        }
+        CIF3ConnectorJob job = CIF3ConnectorJob.parse(options);
+        job.inlineInputs.addAll(automata);
+        if (job.inlineInputs.isEmpty())
+            throw new IllegalArgumentException("No input automata specified.");
+        checkConfined(job, root);
+
+        if (Arrays.asList(options).contains("-o")) {
+            run(job, jobs);
+            out.write(okAnswer(job));
+            return;
+        }
+        //the outputs are written to a temporary directory, then sent back
+        Path dir = Files.createTempDirectory("cif3connector");
+        try {
+            job.compCif = dir.resolve("Composition.cif").toString();
+            job.orchCif = dir.resolve("Orchestration.cif").toString();
+            job.printContractAutomata = false;
+            run(job, jobs);
+            writeContent(Path.of(job.getCompCif()), out);
+            if (!job.modular)
+                writeContent(Path.of(job.getOrchCif()), out);
+        } finally {
+            CIF3ConnectorCache.deleteRecursively(dir);
+        }
+    }
+
+    private static int lineCount(String digits) throws ProtocolException {
+        try {
+            return Integer.parseInt(digits);
+        } catch (NumberFormatException e) {
+            throw new ProtocolException("Invalid count " + digits);
+        }
+    }
+
+    // each file, and its nearest existing ancestor once links are resolved, must be inside the root
+    static void checkConfined(CIF3ConnectorJob job, Path root) throws IOException {
+        if (root == null)
+            return;
+        for (String f : job.files()) {
+            Path file = root.resolve(f).normalize();
+            Path existing = file;
+            while (existing != null && !Files.exists(existing))
+                existing = existing.getParent();
+            if (!file.startsWith(root) || existing == null || !existing.toRealPath().startsWith(root))
+                throw new IllegalArgumentException(f + " is outside of the directory of the server " + root);
+        }
+    }
+
+    // a modular export has no orchestration
+    private static String okAnswer(CIF3ConnectorJob job) {
+        return "OK " + job.getCompCif() + (job.modular ? "" : " " + job.getOrchCif()) + "\n";
+    }
+
+    private static byte[] readData(BufferedReader in, int count) throws IOException {
+        StringBuilder data = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            String line = in.readLine();
+            if (line == null)
+                throw new IOException("Connection closed while reading an automaton");
+            data.append(line).append('\n');
+        }
+        return data.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void writeContent(Path cif, Writer out) throws IOException {
+        List<String> lines = Files.readAllLines(cif, StandardCharsets.UTF_8);
+        out.write("CIF " + lines.size() + "\n");
+        for (String l : lines)
+            out.write(l + "\n");
+    }
+}
@@ -0,0 +1,264 @@
+package io.github.contractautomata.CIF3Connector;
+
+import io.github.contractautomata.catlib.automaton.Automaton;
+import io.github.contractautomata.catlib.automaton.label.CALabel;
+import io.github.contractautomata.catlib.automaton.label.action.Action;
+import io.github.contractautomata.catlib.automaton.state.State;
+import io.github.contractautomata.catlib.automaton.transition.ModalTransition;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Equivalence check between a CIF3 specification, e.g. the supervisor synthesised by ESCET, and a contract
+ * automaton, e.g. the orchestration synthesised by CATLib, whose transitions are named by their CIF3 events.
+ * <p>
+ * The product of the two, each one determinised by the subset construction, is explored on the fly: in each
+ * reachable pair, both sides must enable the same events and agree on being marked. The check thus decides the
+ * equivalence of the languages and of the marked languages, which for deterministic automata, as the
+ * translations of the orchestrations, coincides with bisimilarity.
+ * Visited pairs are kept in a hash set, and the exploration is breadth-first, so that a shortest counterexample
+ * is reported.
+ */
+public class CIF3Equivalence {
+
+    /**
+     * The outcome of a check: whether the two are equivalent and otherwise a shortest trace of events leading to
+     * a difference, with its description.
+     */
+    public static final class Result {
+        private final boolean equivalent;
+        private final List<String> trace;
+        private final String difference;
+        private final long explored;
+
+        private Result(boolean equivalent, List<String> trace, String difference, long explored) {
+            this.equivalent = equivalent;
+            this.trace = trace;
+            this.difference = difference;
+            this.explored = explored;
+        }
+
+        public boolean isEquivalent() {
+            return equivalent;
+        }
+
+        public List<String> getTrace() {
+            return trace;
+        }
+
+        public String getDifference() {
+            return difference;
+        }
+
+        public long getExplored() {
+            return explored;
+        }
+
+        @Override
+        public String toString() {
+            if (equivalent)
+                return "equivalent, " + explored + " pairs of states explored";
+            return (trace.isEmpty() ? "initially" : "after " + String.join(" ", trace)) + ", " + difference;
+        }
+    }
+
+    /**
+     * Checks the specification against the automaton, where a null automaton stands for an empty orchestration.
+     */
+    public static Result check(CIF3Model cif,
+                               Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> aut) {
+        List<CIF3Model.Component> components = cif.components;
+        AutomatonIndex index = (aut == null) ? null
+                : new AutomatonIndex(aut.getStates(), aut.getTransition(), CIF3Connector.cachedCIF3ActionNames());
+
+        // Initial pair: the initial locations of each automaton, and the initial state
+        List<int[]> initial = new ArrayList<>();
+        initial.add(new int[components.size()]);
+        for (int c = 0; c < components.size(); c++) {
+            List<int[]> next = new ArrayList<>();
+            List<CIF3Model.Location> locations = components.get(c).locations;
+            for (int l = 0; l < locations.size(); l++)
+                if (locations.get(l).initial)
+                    for (int[] s : initial) {
+                        int[] t = s.clone();
+                        t[c] = l;
+                        next.add(t);
+                    }
+            initial = next;
+        }
+        Set<Vector> initialCif = new HashSet<>();
+        for (int[] s : initial)
+            initialCif.add(new Vector(s));
+        TreeSet<Integer> initialAut = new TreeSet<>();
+        if (index != null)
+            for (int i = 0; i < index.numStates(); i++)
+                if (index.states.get(i).isInitial())
+                    initialAut.add(i);
+        if (initialCif.isEmpty() != initialAut.isEmpty())
+            return new Result(false, List.of(), "the " + (initialCif.isEmpty() ? "CIF3 specification" : "automaton") + " has no initial state", 1);
+
+        Node root = new Node(new Pair(initialCif, initialAut), null, null);
+        Set<Pair> visited = new HashSet<>();
+        visited.add(root.pair);
+        Deque<Node> queue = new ArrayDeque<>();
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            Node n = queue.poll();
+            boolean cifMarked = Arrays.stream(n.pair.cif).anyMatch(s -> marked(components, s.locations));
+            boolean autMarked = Arrays.stream(n.pair.aut).anyMatch(i -> index.states.get(i).isFinalState());
+            if (cifMarked != autMarked)
+                return new Result(false, n.trace(), "the " + (cifMarked ? "CIF3 specification" : "automaton") + " is marked and the "
+                        + (cifMarked ? "automaton" : "CIF3 specification") + " is not" + n.describe(cif), visited.size());
+
+            Map<String, Set<Vector>> cifSuccessors = new TreeMap<>();
+            for (Vector s : n.pair.cif)
+                successors(components, s.locations, cifSuccessors);
+            Map<String, Set<Integer>> autSuccessors = new TreeMap<>();
+            for (int i : n.pair.aut)
+                for (int e = index.edgeStart[i]; e < index.edgeStart[i + 1]; e++)
+                    autSuccessors.computeIfAbsent(index.events.get(index.edgeEvent[e]), k -> new TreeSet<>()).add(index.edgeTarget[e]);
+
+            for (String e : cifSuccessors.keySet())
+                if (!autSuccessors.containsKey(e))
+                    return new Result(false, n.trace(), "event " + e + " is enabled by the CIF3 specification only" + n.describe(cif), visited.size());
+            for (String e : autSuccessors.keySet())
+                if (!cifSuccessors.containsKey(e))
+                    return new Result(false, n.trace(), "event " + e + " is enabled by the automaton only" + n.describe(cif), visited.size());
+            for (String e : cifSuccessors.keySet()) {
+                Pair next = new Pair(cifSuccessors.get(e), autSuccessors.get(e));
+                if (visited.add(next))
+                    queue.add(new Node(next, n, e));
+            }
+        }
+        return new Result(true, List.of(), null, visited.size());
+    }
+
+    private static boolean marked(List<CIF3Model.Component> components, int[] s) {
+        for (int c = 0; c < components.size(); c++)
+            if (!components.get(c).locations.get(s[c]).marked)
+                return false;
+        return true;
+    }
+
+    // adds the successors of the state of the CIF3 specification, by event
+    private static void successors(List<CIF3Model.Component> components, int[] s, Map<String, Set<Vector>> successors) {
+        Set<String> candidates = new HashSet<>();
+        for (int c = 0; c < components.size(); c++)
+            for (CIF3Model.Edge edge : components.get(c).locations.get(s[c]).edges)
+                candidates.add(edge.event);
+        for (String e : candidates) {
+            // each automaton with the event in its alphabet must take one of its enabled edges labelled by it
+            List<int[]> targets = new ArrayList<>();
+            targets.add(s);
+            for (int c = 0; c < components.size() && !targets.isEmpty(); c++) {
+                if (!components.get(c).alphabet.contains(e))
+                    continue;
+                List<int[]> next = new ArrayList<>();
+                for (CIF3Model.Edge edge : components.get(c).locations.get(s[c]).edges)
+                    if (edge.event.equals(e) && edge.isEnabled(s))
+                        for (int[] t : targets) {
+                            int[] u = t.clone();
+                            u[c] = edge.target;
+                            next.add(u);
+                        }
+                targets = next;
+            }
+            for (int[] t : targets)
+                successors.computeIfAbsent(e, k -> new HashSet<>()).add(new Vector(t));
+        }
+    }
+
+    // a state of the CIF3 specification: the current location of each automaton
+    private static final class Vector implements Comparable<Vector> {
+        final int[] locations;
+        final int hash;
+
+        Vector(int[] locations) {
+            this.locations = locations;
+            this.hash = Arrays.hashCode(locations);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Vector && hash == ((Vector) o).hash && Arrays.equals(locations, ((Vector) o).locations);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public int compareTo(Vector o) {
+            return Arrays.compare(locations, o.locations);
+        }
+    }
+
+    // a pair of sets of states of the two sides, both sorted so that equal sets are equal pairs
+    private static final class Pair {
+        final Vector[] cif;
+        final int[] aut;
+        final int hash;
+
+        Pair(Set<Vector> cif, Set<Integer> aut) {
+            this.cif = cif.toArray(new Vector[0]);
+            Arrays.sort(this.cif);
+            this.aut = aut.stream().mapToInt(Integer::intValue).sorted().toArray();
+            this.hash = 31 * Arrays.hashCode(this.cif) + Arrays.hashCode(this.aut);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Pair && hash == ((Pair) o).hash
+                    && Arrays.equals(cif, ((Pair) o).cif) && Arrays.equals(aut, ((Pair) o).aut);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Node {
+        final Pair pair;
+        final Node parent;
+        final String event;
+
+        Node(Pair pair, Node parent, String event) {
+            this.pair = pair;
+            this.parent = parent;
+            this.event = event;
+        }
+
+        List<String> trace() {
+            LinkedList<String> trace = new LinkedList<>();
+            for (Node n = this; n.parent != null; n = n.parent)
+                trace.addFirst(n.event);
+            return Collections.unmodifiableList(trace);
+        }
+
+        // the @state annotations of the first state of the CIF3 specification, if any
+        String describe(CIF3Model cif) {
+            if (pair.cif.length == 0)
+                return "";
+            List<String> states = new ArrayList<>();
+            int[] s = pair.cif[0].locations;
+            for (int c = 0; c < s.length; c++) {
+                CIF3Model.Location l = cif.components.get(c).locations.get(s[c]);
+                states.add(cif.components.get(c).name + "." + l.name + (l.state == null ? "" : " (" + l.state + ")"));
+            }
+            return ", in " + String.join(", ", states);
+        }
+    }
+}
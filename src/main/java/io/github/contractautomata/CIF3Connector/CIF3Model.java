@@ -0,0 +1,161 @@
+package io.github.contractautomata.CIF3Connector;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A CIF3 specification read by {@link CIF3Reader}: its automata, which synchronise on the events of their
+ * alphabets, and the controllability of the declared events (null for events declared without controllability).
+ * Events are named by their absolute names, e.g. Aut.c_goright_match_3_1.
+ * The state of the specification is given by the index of the current location of each automaton.
+ */
+public class CIF3Model {
+
+    final List<Component> components = new ArrayList<>();
+    final Map<String, Boolean> controllable = new LinkedHashMap<>();
+
+    public List<Component> getComponents() {
+        return components;
+    }
+
+    public Map<String, Boolean> getControllable() {
+        return controllable;
+    }
+
+    /**
+     * An automaton of the specification, whose kind is plant, supervisor or automaton.
+     */
+    public static class Component {
+        final String name;
+        final String kind;
+        Set<String> alphabet;
+        final List<Location> locations = new ArrayList<>();
+
+        Component(String name, String kind) {
+            this.name = name;
+            this.kind = kind;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getKind() {
+            return kind;
+        }
+
+        public Set<String> getAlphabet() {
+            return alphabet;
+        }
+
+        public List<Location> getLocations() {
+            return locations;
+        }
+    }
+
+    /**
+     * A location, with the state of its @state annotation if any (null otherwise).
+     */
+    public static class Location {
+        final String name;
+        final String state;
+        boolean initial;
+        boolean marked;
+        final List<Edge> edges = new ArrayList<>();
+
+        Location(String name, String state) {
+            this.name = name;
+            this.state = state;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getState() {
+            return state;
+        }
+
+        public boolean isInitial() {
+            return initial;
+        }
+
+        public boolean isMarked() {
+            return marked;
+        }
+
+        public List<Edge> getEdges() {
+            return edges;
+        }
+    }
+
+    /**
+     * An edge, labelled by one event, with its guard (null if none) and the index of its target location.
+     * An edge of several events is read as one edge for each event.
+     */
+    public static class Edge {
+        final String event;
+        final Guard guard;
+        int target;
+
+        Edge(String event, Guard guard) {
+            this.event = event;
+            this.guard = guard;
+        }
+
+        public String getEvent() {
+            return event;
+        }
+
+        public int getTarget() {
+            return target;
+        }
+
+        public boolean isEnabled(int[] locations) {
+            return guard == null || guard.holds(locations);
+        }
+    }
+
+    /**
+     * A guard over the current locations of the automata.
+     */
+    @FunctionalInterface
+    public interface Guard {
+        boolean holds(int[] locations);
+
+        static Guard not(Guard g) {
+            return s -> !g.holds(s);
+        }
+
+        static Guard and(Guard g1, Guard g2) {
+            return s -> g1.holds(s) && g2.holds(s);
+        }
+
+        static Guard or(Guard g1, Guard g2) {
+            return s -> g1.holds(s) || g2.holds(s);
+        }
+    }
+
+    // a reference to a location, resolved once all the automata have been read
+    static final class LocationReference implements Guard {
+        final String reference;
+        final String automaton; //the automaton of the guard, for relative references
+        final int line;
+        int component;
+        int location;
+
+        LocationReference(String reference, String automaton, int line) {
+            this.reference = reference;
+            this.automaton = automaton;
+            this.line = line;
+        }
+
+        @Override
+        public boolean holds(int[] locations) {
+            return locations[component] == location;
+        }
+    }
+}
@@ -0,0 +1,418 @@
+package io.github.contractautomata.CIF3Connector;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streaming reader of the flat subset of CIF3 emitted by the connector and produced by ESCET: groups, event
+ * declarations, plant and supervisor automata with their alphabets, locations, @state annotations and edges.
+ * Edge guards are supported as long as they only refer to locations, combined with not, and, or (and commas),
+ * as in the guards of the modular export and in the supervisors of the data-based synthesis of ESCET.
+ * Requirements are skipped, as they only constrain the synthesis. Other declarations (variables, functions,
+ * updates, ...) are rejected.
+ * <p>
+ * The text is tokenized while reading, so that only the structure of the automata is kept in memory.
+ */
+public class CIF3Reader {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    public CIF3Model read(Path file) throws IOException {
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return read(in);
+        }
+    }
+
+    /**
+     * Reads a CIF3 specification from the reader, which is not closed.
+     */
+    public CIF3Model read(Reader in) throws IOException {
+        Parser p = new Parser(new Lexer(new BufferedReader(in, BUFFER_SIZE)));
+        p.declarations("", false);
+        p.resolve();
+        return p.model;
+    }
+
+    // Tokens are identifiers (possibly with dots), strings (returned with their opening quote) and punctuation
+    private static final class Lexer {
+        private final Reader in;
+        private int c;
+        private int line = 1;
+        private String peeked;
+
+        Lexer(Reader in) throws IOException {
+            this.in = in;
+            this.c = in.read();
+        }
+
+        String peek() throws IOException {
+            if (peeked == null)
+                peeked = read();
+            return peeked;
+        }
+
+        String next() throws IOException {
+            String t = peek();
+            peeked = null;
+            return t;
+        }
+
+        private void advance() throws IOException {
+            if (c == '\n')
+                line++;
+            c = in.read();
+        }
+
+        private String read() throws IOException {
+            while (true) {
+                while (c >= 0 && Character.isWhitespace(c))
+                    advance();
+                if (c != '/')
+                    break;
+                advance();
+                if (c == '/') {
+                    while (c >= 0 && c != '\n')
+                        advance();
+                } else if (c == '*') {
+                    advance();
+                    int prev = 0;
+                    while (c >= 0 && !(prev == '*' && c == '/')) {
+                        prev = c;
+                        advance();
+                    }
+                    advance();
+                } else
+                    return "/";
+            }
+            if (c < 0)
+                return null;
+            StringBuilder sb = new StringBuilder();
+            if (Character.isLetterOrDigit(c) || c == '_' || c == '$') {
+                while (c >= 0 && (Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '.')) {
+                    sb.append((char) c);
+                    advance();
+                }
+                return sb.toString();
+            }
+            if (c == '"') {
+                sb.append('"');
+                advance();
+                while (c >= 0 && c != '"') {
+                    if (c == '\\') {
+                        advance();
+                        sb.append(c == 'n' ? '\n' : c == 't' ? '\t' : (char) c);
+                    } else
+                        sb.append((char) c);
+                    advance();
+                }
+                advance();
+                return sb.toString();
+            }
+            sb.append((char) c);
+            advance();
+            return sb.toString();
+        }
+    }
+
+    private static final class Parser {
+        private final Lexer lex;
+        private final CIF3Model model = new CIF3Model();
+        private final List<Map<String, Integer>> locationIds = new ArrayList<>();
+        private final List<List<String>> targets = new ArrayList<>(); //the target of each edge, by automaton
+        private final List<CIF3Model.LocationReference> references = new ArrayList<>();
+
+        Parser(Lexer lex) {
+            this.lex = lex;
+        }
+
+        void declarations(String prefix, boolean inGroup) throws IOException {
+            while (true) {
+                String t = lex.peek();
+                if (t == null) {
+                    if (inGroup)
+                        throw error("Unexpected end of file");
+                    return;
+                }
+                switch (t) {
+                    case "end":
+                        if (!inGroup)
+                            throw error("Unexpected end");
+                        lex.next();
+                        return;
+                    case "@":
+                        annotation();
+                        break;
+                    case "group":
+                        lex.next();
+                        String name = identifier();
+                        expect(":");
+                        declarations(prefix + name + ".", true);
+                        break;
+                    case "controllable":
+                    case "uncontrollable":
+                    case "event":
+                        lex.next();
+                        for (String e : identifiers())
+                            model.controllable.put(prefix + e, "event".equals(t) ? null : "controllable".equals(t));
+                        expect(";");
+                        break;
+                    case "plant":
+                    case "supervisor":
+                        lex.next();
+                        expect("automaton");
+                        automaton(prefix, t);
+                        break;
+                    case "automaton":
+                        lex.next();
+                        automaton(prefix, "automaton");
+                        break;
+                    case "requirement":
+                        lex.next();
+                        skipRequirement();
+                        break;
+                    default:
+                        throw error("Unsupported CIF3 declaration \"" + t + "\"");
+                }
+            }
+        }
+
+        private void automaton(String prefix, String kind) throws IOException {
+            CIF3Model.Component a = new CIF3Model.Component(prefix + identifier(), kind);
+            expect(":");
+            Map<String, Integer> ids = new HashMap<>();
+            List<String> edgeTargets = new ArrayList<>();
+            Set<String> inferred = new LinkedHashSet<>();
+            String stateLabel = null;
+            CIF3Model.Location location = null;
+            while (true) {
+                String t = lex.next();
+                if (t == null)
+                    throw error("Unexpected end of file in automaton " + a.name);
+                if ("end".equals(t))
+                    break;
+                switch (t) {
+                    case "alphabet":
+                        a.alphabet = new LinkedHashSet<>();
+                        if (!";".equals(lex.peek()))
+                            for (String e : identifiers())
+                                a.alphabet.add(event(prefix, e));
+                        expect(";");
+                        break;
+                    case "@":
+                        String label = annotationBody();
+                        if (label != null)
+                            stateLabel = label;
+                        break;
+                    case "location":
+                        String name = (";".equals(lex.peek()) || ":".equals(lex.peek())) ? "" : identifier();
+                        location = new CIF3Model.Location(name, stateLabel);
+                        stateLabel = null;
+                        ids.put(name, a.locations.size());
+                        a.locations.add(location);
+                        String sep = lex.next();
+                        if (";".equals(sep))
+                            location = null; //a location without body
+                        else if (!":".equals(sep))
+                            throw error("Expected \":\" or \";\" after location " + name);
+                        break;
+                    case "initial":
+                    case "marked":
+                        if (location == null)
+                            throw error("Unexpected " + t);
+                        if ("initial".equals(t))
+                            location.initial = true;
+                        else
+                            location.marked = true;
+                        expect(";");
+                        break;
+                    case "urgent":
+                        expect(";"); //urgency is about time, which does not affect the behaviour
+                        break;
+                    case "edge":
+                        if (location == null)
+                            throw error("Unexpected edge");
+                        List<String> events = new ArrayList<>();
+                        for (String e : identifiers())
+                            events.add(event(prefix, e));
+                        CIF3Model.Guard guard = null;
+                        if ("when".equals(lex.peek())) {
+                            lex.next();
+                            guard = expression(a.name);
+                            while (",".equals(lex.peek())) {
+                                lex.next();
+                                guard = CIF3Model.Guard.and(guard, expression(a.name));
+                            }
+                        }
+                        String target = null;
+                        if ("goto".equals(lex.peek())) {
+                            lex.next();
+                            target = identifier();
+                        } else if ("do".equals(lex.peek()))
+                            throw error("Updates are not supported");
+                        expect(";");
+                        for (String e : events) {
+                            location.edges.add(new CIF3Model.Edge(e, guard));
+                            edgeTargets.add(target == null ? location.name : target);
+                            inferred.add(e);
+                        }
+                        break;
+                    default:
+                        throw error("Unsupported CIF3 element \"" + t + "\" in automaton " + a.name);
+                }
+            }
+            if (a.alphabet == null)
+                a.alphabet = inferred;
+            model.components.add(a);
+            locationIds.add(ids);
+            targets.add(edgeTargets);
+        }
+
+        // event references are absolute, or relative to the enclosing group
+        private String event(String prefix, String e) {
+            return (!model.controllable.containsKey(e) && model.controllable.containsKey(prefix + e)) ? prefix + e : e;
+        }
+
+        // expressions over locations, with the precedence of CIF3: not, then and, then or
+        private CIF3Model.Guard expression(String automaton) throws IOException {
+            CIF3Model.Guard g = conjunction(automaton);
+            while ("or".equals(lex.peek())) {
+                lex.next();
+                g = CIF3Model.Guard.or(g, conjunction(automaton));
+            }
+            return g;
+        }
+
+        private CIF3Model.Guard conjunction(String automaton) throws IOException {
+            CIF3Model.Guard g = unary(automaton);
+            while ("and".equals(lex.peek())) {
+                lex.next();
+                g = CIF3Model.Guard.and(g, unary(automaton));
+            }
+            return g;
+        }
+
+        private CIF3Model.Guard unary(String automaton) throws IOException {
+            String t = lex.next();
+            if (t == null)
+                throw error("Unexpected end of file in a guard");
+            switch (t) {
+                case "not":
+                    return CIF3Model.Guard.not(unary(automaton));
+                case "(":
+                    CIF3Model.Guard g = expression(automaton);
+                    expect(")");
+                    return g;
+                case "true":
+                    return s -> true;
+                case "false":
+                    return s -> false;
+                default:
+                    if (!isIdentifier(t))
+                        throw error("Unsupported guard at \"" + t + "\"");
+                    CIF3Model.LocationReference r = new CIF3Model.LocationReference(t, automaton, lex.line);
+                    references.add(r);
+                    return r;
+            }
+        }
+
+        // the requirements are skipped, either a requirement automaton or a single requirement up to ;
+        private void skipRequirement() throws IOException {
+            boolean automaton = "automaton".equals(lex.peek());
+            for (String t = lex.next(); t != null; t = lex.next())
+                if (automaton ? "end".equals(t) : ";".equals(t))
+                    return;
+            throw error("Unexpected end of file in a requirement");
+        }
+
+        private void annotation() throws IOException {
+            lex.next();
+            annotationBody();
+        }
+
+        // returns the state of a @state annotation, or null for other annotations
+        private String annotationBody() throws IOException {
+            String name = identifier();
+            StringBuilder state = null;
+            if ("(".equals(lex.peek())) {
+                lex.next();
+                for (String t = lex.next(); !")".equals(t); t = lex.next()) {
+                    if (t == null)
+                        throw error("Unexpected end of file in an annotation");
+                    if ("state".equals(name) && t.startsWith("\""))
+                        state = (state == null ? new StringBuilder() : state.append(",")).append(t.substring(1));
+                }
+            }
+            return state == null ? null : state.toString();
+        }
+
+        // location references and targets are resolved once all the automata have been read
+        void resolve() throws IOException {
+            Map<String, Integer> componentIds = new HashMap<>();
+            for (int i = 0; i < model.components.size(); i++)
+                componentIds.put(model.components.get(i).name, i);
+            for (int i = 0; i < model.components.size(); i++) {
+                CIF3Model.Component a = model.components.get(i);
+                int e = 0;
+                for (CIF3Model.Location l : a.locations)
+                    for (CIF3Model.Edge edge : l.edges) {
+                        Integer target = locationIds.get(i).get(targets.get(i).get(e++));
+                        if (target == null)
+                            throw new IOException("Unknown target location in automaton " + a.name);
+                        edge.target = target;
+                    }
+            }
+            for (CIF3Model.LocationReference r : references) {
+                int dot = r.reference.lastIndexOf('.');
+                String automaton = (dot < 0) ? r.automaton : r.reference.substring(0, dot);
+                Integer c = componentIds.get(automaton);
+                Integer l = (c == null) ? null : locationIds.get(c).get(r.reference.substring(dot + 1));
+                if (l == null)
+                    throw new IOException("Unsupported reference " + r.reference + " at line " + r.line + ", only locations can be referred to");
+                r.component = c;
+                r.location = l;
+            }
+        }
+
+        private List<String> identifiers() throws IOException {
+            List<String> ids = new ArrayList<>();
+            ids.add(identifier());
+            while (",".equals(lex.peek())) {
+                lex.next();
+                ids.add(identifier());
+            }
+            return ids;
+        }
+
+        private String identifier() throws IOException {
+            String t = lex.next();
+            if (t == null || !isIdentifier(t))
+                throw error("Expected an identifier, found " + (t == null ? "end of file" : "\"" + t + "\""));
+            return t;
+        }
+
+        private static boolean isIdentifier(String t) {
+            char c = t.charAt(0);
+            return Character.isLetter(c) || c == '_' || c == '$';
+        }
+
+        private void expect(String s) throws IOException {
+            String t = lex.next();
+            if (!s.equals(t))
+                throw error("Expected \"" + s + "\", found " + (t == null ? "end of file" : "\"" + t + "\""));
+        }
+
+        private IOException error(String message) {
+            return new IOException(message + " at line " + lex.line);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package io.github.contractautomata.CIF3Connector;
+
+import io.github.contractautomata.catlib.automaton.label.CALabel;
+import io.github.contractautomata.catlib.automaton.label.action.Action;
+import io.github.contractautomata.catlib.automaton.state.State;
+import io.github.contractautomata.catlib.automaton.transition.ModalTransition;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Observes the progress of a composition through its pruning predicate, which is evaluated on each transition of
+ * the forward star of each explored state.
+ * The states reached are collected in a concurrent set: the source of each evaluated transition, and the target of
+ * each transition not pruned. At the end of the composition they are the states of the composed automaton, so
+ * that the budget of states counts the same quantity during the composition and on its result; the initial state
+ * is only counted once its forward star is evaluated.
+ * The composition evaluates the predicate several times on each transition, so the outcome is cached for each
+ * transition: transitions are counted, and the pruning predicate evaluated, once each.
+ * None of this depends on the order in which the composition visits states and transitions.
+ * Each time a state is expanded or a transition kept, the limits, if any, are checked, and the composition is
+ * stopped by an {@link ExplorationLimitException} once one is exceeded. The transitions not pruned can be retrieved,
+ * so that the part of the composition explored so far can be exported.
+ */
+class CompositionMonitor implements Predicate<ModalTransition<String, Action, State<String>, CALabel>> {
+
+    private final Predicate<ModalTransition<String, Action, State<String>, CALabel>> pruning;
+    private final ExplorationLimits limits;
+    private final Map<ModalTransition<String, Action, State<String>, CALabel>, Boolean> pruned = new ConcurrentHashMap<>();
+    private final Set<State<String>> reached = ConcurrentHashMap.newKeySet();
+    private final LongAdder examined = new LongAdder();
+    private final LongAdder kept = new LongAdder();
+
+    CompositionMonitor(Predicate<ModalTransition<String, Action, State<String>, CALabel>> pruning) {
+        this(pruning, null);
+    }
+
+    /**
+     * @param limits the limits of the composition, or null for none
+     */
+    CompositionMonitor(Predicate<ModalTransition<String, Action, State<String>, CALabel>> pruning,
+                       ExplorationLimits limits) {
+        this.pruning = pruning;
+        this.limits = limits;
+    }
+
+    @Override
+    public boolean test(ModalTransition<String, Action, State<String>, CALabel> t) {
+        Boolean cached = pruned.get(t);
+        if (cached != null)
+            return cached;
+        boolean expanding = reached.add(t.getSource());
+        boolean outcome = pruning.test(t);
+        if (pruned.putIfAbsent(t, outcome) == null) {
+            examined.increment();
+            if (!outcome) {
+                kept.increment();
+                reached.add(t.getTarget());
+            }
+            if ((expanding || !outcome) && limits != null)
+                limits.check("composition", getReached(), getKept(), "after " + this);
+        }
+        return outcome;
+    }
+
+    /**
+     * @return the number of distinct transitions examined so far, including the pruned ones
+     */
+    long getExamined() {
+        return examined.sum();
+    }
+
+    /**
+     * @return the number of transitions examined so far and not pruned
+     */
+    long getKept() {
+        return kept.sum();
+    }
+
+    /**
+     * @return the number of states reached so far, either expanded or target of a transition not pruned
+     */
+    long getReached() {
+        return reached.size();
+    }
+
+    /**
+     * Returns a copy of the transitions not pruned so far, whose targets not yet expanded have no outgoing
+     * transitions.
+     */
+    Set<ModalTransition<String, Action, State<String>, CALabel>> getExplored() {
+        return pruned.entrySet().stream()
+                .filter(e -> !e.getValue())
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public String toString() {
+        return getReached() + " states reached, " + getExamined() + " transitions examined";
+    }
+}
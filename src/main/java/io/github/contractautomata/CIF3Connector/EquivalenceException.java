@@ -0,0 +1,14 @@
+package io.github.contractautomata.CIF3Connector;
+
+/**
+ * Thrown when the orchestration is not equivalent to the supervisor given with -e, with a shortest trace of events
+ * leading to the difference.
+ */
+public class EquivalenceException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public EquivalenceException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,16 @@
+package io.github.contractautomata.CIF3Connector;
+
+/**
+ * Thrown when a run is stopped by one of its {@link ExplorationLimits}, with a description of the limit and of how
+ * far the phase got.
+ * The only constructor takes a message, so that parallel streams rethrow this exception as is rather than a copy
+ * wrapping it.
+ */
+public class ExplorationLimitException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ExplorationLimitException(String message) {
+        super(message);
+    }
+}
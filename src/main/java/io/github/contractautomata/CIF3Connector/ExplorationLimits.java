@@ -0,0 +1,82 @@
+package io.github.contractautomata.CIF3Connector;
+
+import io.github.contractautomata.catlib.automaton.label.CALabel;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * The limits of a run, so that a badly specified model stops the job instead of the JVM: a budget of states and
+ * transitions, a wall-clock deadline counted from the start of the job, and a threshold on the fraction of the
+ * maximum heap in use. A limit of 0 is no limit.
+ * <p>
+ * The heap in use includes the garbage not yet collected, hence the threshold should leave room to the collector,
+ * e.g. 90%.
+ */
+final class ExplorationLimits {
+
+    private static final int SAMPLING = 1024; //evaluations of the guarded agreement between two checks
+
+    private final long maxStates;
+    private final long maxTransitions;
+    private final long startNanos = System.nanoTime();
+    private final long timeoutNanos;
+    private final double heapFraction;
+    private final AtomicInteger evaluations = new AtomicInteger();
+
+    ExplorationLimits(long maxStates, long maxTransitions, int timeoutSeconds, int heapPercent) {
+        this.maxStates = maxStates;
+        this.maxTransitions = maxTransitions;
+        this.timeoutNanos = TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        this.heapFraction = heapPercent / 100.0;
+    }
+
+    /**
+     * Checks the budget against the given sizes, and the deadline and the heap threshold.
+     *
+     * @param progress a description of how far the phase got, for the message of the exception
+     */
+    void check(String phase, long states, long transitions, String progress) {
+        if (maxStates > 0 && states > maxStates)
+            throw exceeded(phase, "its budget of " + maxStates + " states", progress);
+        if (maxTransitions > 0 && transitions > maxTransitions)
+            throw exceeded(phase, "its budget of " + maxTransitions + " transitions", progress);
+        checkResources(phase, progress);
+    }
+
+    /**
+     * Checks the deadline and the heap threshold.
+     */
+    void checkResources(String phase, String progress) {
+        if (timeoutNanos > 0 && System.nanoTime() - startNanos > timeoutNanos)
+            throw exceeded(phase, "its deadline of " + TimeUnit.NANOSECONDS.toSeconds(timeoutNanos) + " s", progress);
+        if (heapFraction > 0) {
+            Runtime rt = Runtime.getRuntime();
+            long used = rt.totalMemory() - rt.freeMemory();
+            if (used > heapFraction * rt.maxMemory())
+                throw exceeded(phase, "the heap threshold of " + Math.round(heapFraction * 100) + "% ("
+                        + used / (1 << 20) + " of " + rt.maxMemory() / (1 << 20) + " MB in use)", progress);
+        }
+    }
+
+    /**
+     * Returns the agreement checking the deadline and the heap threshold every few evaluations.
+     * The fixpoint of the synthesis calls back no other code of the connector, and it evaluates the agreement
+     * when pruning its result, so the synthesis is only stopped there; its input is bounded by the budget instead,
+     * see {@link #check}.
+     */
+    Predicate<CALabel> guard(String phase, Predicate<CALabel> agreement) {
+        if (timeoutNanos == 0 && heapFraction == 0)
+            return agreement;
+        return l -> {
+            if (evaluations.incrementAndGet() % SAMPLING == 0)
+                checkResources(phase, "after " + (System.nanoTime() - startNanos) / 1_000_000 + " ms");
+            return agreement.test(l);
+        };
+    }
+
+    private static ExplorationLimitException exceeded(String phase, String limit, String progress) {
+        return new ExplorationLimitException("The " + phase + " exceeded " + limit + ", " + progress);
+    }
+}
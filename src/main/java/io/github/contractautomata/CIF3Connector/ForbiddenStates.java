@@ -0,0 +1,226 @@
+package io.github.contractautomata.CIF3Connector;
+
+import com.google.re2j.Pattern;
+import com.google.re2j.PatternSyntaxException;
+import io.github.contractautomata.catlib.automaton.Automaton;
+import io.github.contractautomata.catlib.automaton.label.CALabel;
+import io.github.contractautomata.catlib.automaton.label.action.Action;
+import io.github.contractautomata.catlib.automaton.label.action.OfferAction;
+import io.github.contractautomata.catlib.automaton.state.BasicState;
+import io.github.contractautomata.catlib.automaton.state.State;
+import io.github.contractautomata.catlib.automaton.transition.ModalTransition;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static io.github.contractautomata.catlib.automaton.transition.ModalTransition.Modality.URGENT;
+
+/**
+ * A specification of forbidden states, given as patterns over the labels of the principal states.
+ * Each non-empty line not starting with # is a rule, and a state is forbidden if it satisfies any rule.
+ * A rule is a conjunction of conditions separated by &amp;, each one possibly negated by a leading !:
+ * <ul>
+ *     <li>{@code i:regex} holds if the label of the i-th principal state fully matches the (re2j) regular expression;</li>
+ *     <li>{@code i=j} holds if the i-th and j-th principal states have the same label.</li>
+ * </ul>
+ * Principals are numbered from 1, in the order of the input automata.
+ * For example, the rule {@code 1=2 & !1:.*OUT.*} forbids the first two principals to be in the same state, unless
+ * they are out of the track.
+ * <p>
+ * Patterns are compiled once, and their outcome on each principal state is cached, so that testing a composed
+ * state costs a lookup per principal.
+ */
+public class ForbiddenStates implements Predicate<State<String>> {
+
+    private static final class Condition {
+        final boolean negated;
+        final int index;
+        final int other; //the index compared with, or -1 for patterns
+        final Pattern pattern;
+        final int id; //the position of the pattern among those of the same index
+
+        Condition(boolean negated, int index, int other, Pattern pattern, int id) {
+            this.negated = negated;
+            this.index = index;
+            this.other = other;
+            this.pattern = pattern;
+            this.id = id;
+        }
+    }
+
+    private final List<String> rules;
+    private final List<List<Condition>> conditions;
+    private final List<List<Pattern>> patternsByIndex = new ArrayList<>();
+    private final List<Map<BasicState<String>, BitSet>> matchesByIndex = new ArrayList<>();
+
+    private ForbiddenStates(List<String> lines) {
+        this.rules = new ArrayList<>();
+        this.conditions = new ArrayList<>();
+        for (String line : lines) {
+            String rule = line.trim();
+            if (rule.isEmpty() || rule.startsWith("#"))
+                continue;
+            List<Condition> conjunction = new ArrayList<>();
+            for (String c : rule.split("&"))
+                conjunction.add(parseCondition(c.trim(), rule));
+            rules.add(rule);
+            conditions.add(conjunction);
+        }
+    }
+
+    public static ForbiddenStates load(Path spec) throws IOException {
+        return new ForbiddenStates(Files.readAllLines(spec));
+    }
+
+    public static ForbiddenStates parse(List<String> lines) {
+        return new ForbiddenStates(lines);
+    }
+
+    private Condition parseCondition(String c, String rule) {
+        boolean negated = c.startsWith("!");
+        if (negated)
+            c = c.substring(1).trim();
+        int colon = c.indexOf(':');
+        int equals = c.indexOf('=');
+        int sep = (colon < 0) ? equals : (equals < 0) ? colon : Math.min(colon, equals);
+        if (sep <= 0)
+            throw new IllegalArgumentException("Malformed condition \"" + c + "\" in rule: " + rule);
+        int index = parseIndex(c.substring(0, sep), rule);
+        String rest = c.substring(sep + 1).trim();
+        if (sep == equals)
+            return new Condition(negated, index, parseIndex(rest, rule), null, -1);
+
+        Pattern pattern;
+        try {
+            pattern = Pattern.compile(rest);
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("Malformed pattern \"" + rest + "\" in rule: " + rule, e);
+        }
+        while (patternsByIndex.size() <= index) {
+            patternsByIndex.add(new ArrayList<>());
+            matchesByIndex.add(new ConcurrentHashMap<>());
+        }
+        List<Pattern> patterns = patternsByIndex.get(index);
+        patterns.add(pattern);
+        return new Condition(negated, index, -1, pattern, patterns.size() - 1);
+    }
+
+    private static int parseIndex(String s, String rule) {
+        try {
+            int i = Integer.parseInt(s.trim());
+            if (i < 1)
+                throw new IllegalArgumentException("Principals are numbered from 1, in rule: " + rule);
+            return i - 1;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed principal index \"" + s + "\" in rule: " + rule, e);
+        }
+    }
+
+    @Override
+    public boolean test(State<String> s) {
+        List<BasicState<String>> principals = s.getState();
+        for (List<Condition> conjunction : conditions) {
+            boolean holds = true;
+            for (Condition c : conjunction) {
+                if (holds(c, principals) == c.negated) {
+                    holds = false;
+                    break;
+                }
+            }
+            if (holds)
+                return true;
+        }
+        return false;
+    }
+
+    private boolean holds(Condition c, List<BasicState<String>> principals) {
+        if (Math.max(c.index, c.other) >= principals.size())
+            throw new IllegalArgumentException("The forbidden states refer to principal " + (Math.max(c.index, c.other) + 1) + " of a state of rank " + principals.size());
+        BasicState<String> bs = principals.get(c.index);
+        if (c.pattern == null)
+            return bs.getState().equals(principals.get(c.other).getState());
+        return matchesByIndex.get(c.index).computeIfAbsent(bs, b -> {
+            List<Pattern> patterns = patternsByIndex.get(c.index);
+            BitSet matches = new BitSet(patterns.size());
+            for (int i = 0; i < patterns.size(); i++)
+                if (patterns.get(i).matcher(b.getState()).matches())
+                    matches.set(i);
+            return matches;
+        }).get(c.id);
+    }
+
+    /**
+     * Returns the pruning predicate of the composition: transitions not satisfying the agreement are pruned,
+     * as well as those leaving a forbidden state, so that the successors of forbidden states are not explored.
+     */
+    public Predicate<ModalTransition<String, Action, State<String>, CALabel>> pruning(Predicate<CALabel> agreement) {
+        return t -> !agreement.test(t.getLabel()) || test(t.getSource());
+    }
+
+    /**
+     * Standard synthesis does not take a forbidden predicate, therefore an uncontrollable transition to a sink state
+     * is added to each forbidden state of the automaton.
+     */
+    public Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> redirectToSink(
+            Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> aut) {
+        Set<State<String>> badStates = aut.getStates().parallelStream()
+                .filter(this)
+                .collect(Collectors.toSet());
+        if (badStates.isEmpty())
+            return aut;
+
+        State<String> sink = new State<>(IntStream.range(0, aut.getRank())
+                .mapToObj(i -> new BasicState<>("sink", false, false, false))
+                .collect(Collectors.toList()));
+        CALabel lab = new CALabel(aut.getRank(), 1, new OfferAction("sink"));
+
+        Set<ModalTransition<String, Action, State<String>, CALabel>> tr = aut.getTransition();
+        badStates.forEach(s -> tr.add(new ModalTransition<>(s, lab, sink, URGENT)));
+        return new Automaton<>(tr);
+    }
+
+    /**
+     * Returns the rules as CIF3 requirement invariants over the locations of a modular translation, where the i-th
+     * map gives, for each label of a state of the i-th principal, the (absolute) names of its locations.
+     * States violating an invariant are avoided by the synthesis, as the forbidden states redirected to the sink.
+     */
+    List<String> toCIF3Requirements(List<Map<String, List<String>>> locationsByLabel) {
+        List<String> requirements = new ArrayList<>(conditions.size());
+        for (List<Condition> conjunction : conditions) {
+            StringBuilder rule = new StringBuilder();
+            for (Condition c : conjunction) {
+                if (Math.max(c.index, c.other) >= locationsByLabel.size())
+                    throw new IllegalArgumentException("The forbidden states refer to principal " + (Math.max(c.index, c.other) + 1) + " of " + locationsByLabel.size() + " principals");
+                Map<String, List<String>> locations = locationsByLabel.get(c.index);
+                List<String> disjuncts = new ArrayList<>();
+                for (Map.Entry<String, List<String>> e : locations.entrySet()) {
+                    if (c.pattern != null) {
+                        if (c.pattern.matcher(e.getKey()).matches())
+                            disjuncts.addAll(e.getValue());
+                    } else if (locationsByLabel.get(c.other).containsKey(e.getKey()))
+                        disjuncts.add("((" + String.join(" or ", e.getValue()) + ") and ("
+                                + String.join(" or ", locationsByLabel.get(c.other).get(e.getKey())) + "))");
+                }
+                String condition = disjuncts.isEmpty() ? "false" : "(" + String.join(" or ", disjuncts) + ")";
+                rule.append(rule.length() == 0 ? "" : " and ").append(c.negated ? "not " : "").append(condition);
+            }
+            requirements.add("requirement invariant not (" + rule + ");");
+        }
+        return requirements;
+    }
+
+    @Override
+    public String toString() {
+        return String.join("\n", rules);
+    }
+}
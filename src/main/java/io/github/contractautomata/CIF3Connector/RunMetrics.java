@@ -0,0 +1,213 @@
+package io.github.contractautomata.CIF3Connector;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Metrics of a run of the connector, recorded for each phase: wall time, CPU time, allocated bytes, garbage
+ * collection time, and sizes of the automata before and after the phase.
+ * CPU time, allocation and garbage collection are measured for the whole process, hence they are reported as
+ * processCpuMs, processAllocatedBytes, processGcMs and processGcCount: phases running concurrently (see
+ * {@link TaskPipeline}), and jobs running concurrently in the same JVM with -b or -s, account for each other's work.
+ * Allocation is summed over the live threads, so the bytes allocated by threads terminated during a phase, e.g.
+ * idle workers of the common pool, are lost: it is a lower bound, and never negative.
+ * Snapshots and sizes are only taken when counting is enabled, i.e. for a report, as the former walk the threads of
+ * the JVM and the latter require a pass over the automata; without a report nor a progress line phases are not
+ * recorded at all.
+ * The metrics can be written as a JSON report, and optionally a progress line is printed periodically on the
+ * standard error.
+ */
+final class RunMetrics implements AutoCloseable {
+
+    private static final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+    private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    /**
+     * A phase of the run, whose end is recorded when closed.
+     */
+    final class Phase implements AutoCloseable {
+        private final String name;
+        private final long[] start;
+        private long[] end;
+        private volatile boolean closed;
+        private final Map<String, Long> counts = new LinkedHashMap<>();
+
+        private Phase(String name) {
+            this.name = name;
+            this.start = counting ? snapshot() : null;
+        }
+
+        void count(String key, LongSupplier value) {
+            if (counting)
+                synchronized (counts) {
+                    counts.put(key, value.getAsLong());
+                }
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                if (counting)
+                    end = snapshot();
+                closed = true;
+            }
+        }
+
+        private String toJson() {
+            long[] e = (end == null) ? snapshot() : end;
+            StringBuilder sb = new StringBuilder();
+            sb.append("{\"name\": ").append(quote(name))
+                    .append(", \"completed\": ").append(closed)
+                    .append(", \"wallMs\": ").append((e[0] - start[0]) / 1_000_000)
+                    .append(", \"processCpuMs\": ").append((e[1] - start[1]) / 1_000_000)
+                    .append(", \"processAllocatedBytes\": ").append(Math.max(0, e[2] - start[2]))
+                    .append(", \"processGcMs\": ").append(e[3] - start[3])
+                    .append(", \"processGcCount\": ").append(e[4] - start[4]);
+            synchronized (counts) {
+                for (Map.Entry<String, Long> c : counts.entrySet())
+                    sb.append(", ").append(quote(c.getKey())).append(": ").append(c.getValue());
+            }
+            return sb.append("}").toString();
+        }
+    }
+
+    private final boolean counting;
+    private final long startNanos = System.nanoTime();
+    private final List<Phase> phases = new ArrayList<>();
+    private final Map<String, String> properties = new LinkedHashMap<>();
+    private final ScheduledExecutorService progress;
+    private volatile CompositionMonitor composition;
+
+    /**
+     * @param counting whether the sizes of the automata are computed
+     * @param progressSeconds the period of the progress line, or 0 for no progress line
+     */
+    RunMetrics(boolean counting, int progressSeconds) {
+        this.counting = counting;
+        if (progressSeconds > 0) {
+            progress = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "cif3connector-progress");
+                t.setDaemon(true);
+                return t;
+            });
+            progress.scheduleAtFixedRate(() -> System.err.println(progressLine()), progressSeconds, progressSeconds, TimeUnit.SECONDS);
+        } else
+            progress = null;
+    }
+
+    Phase phase(String name) {
+        Phase p = new Phase(name);
+        if (!counting && progress == null)
+            return p;
+        synchronized (phases) {
+            phases.add(p);
+        }
+        return p;
+    }
+
+    void set(String key, Object value) {
+        synchronized (properties) {
+            properties.put(key, (value instanceof Number || value instanceof Boolean) ? value.toString() : quote(String.valueOf(value)));
+        }
+    }
+
+    /**
+     * Sets the monitor of the running composition, reported in the progress line.
+     */
+    void setComposition(CompositionMonitor composition) {
+        this.composition = composition;
+    }
+
+    private String progressLine() {
+        String running;
+        synchronized (phases) {
+            running = phases.stream().filter(p -> !p.closed).map(p -> p.name).collect(Collectors.joining(", "));
+        }
+        Runtime rt = Runtime.getRuntime();
+        CompositionMonitor c = composition;
+        return "[progress] " + (System.nanoTime() - startNanos) / 1_000_000_000 + "s"
+                + (running.isEmpty() ? "" : ", running: " + running)
+                + (c == null ? "" : ", composition: " + c)
+                + ", heap used: " + (rt.totalMemory() - rt.freeMemory()) / (1 << 20) + " MB";
+    }
+
+    void writeJson(Path report) throws IOException {
+        CIF3Connector.writeAtomically(report, tmp -> {
+            try (Writer out = CIF3Connector.newCifWriter(tmp)) {
+                out.write("{\n  \"totalWallMs\": " + (System.nanoTime() - startNanos) / 1_000_000);
+                synchronized (properties) {
+                    for (Map.Entry<String, String> p : properties.entrySet())
+                        out.write(",\n  " + quote(p.getKey()) + ": " + p.getValue());
+                }
+                out.write(",\n  \"phases\": [");
+                synchronized (phases) {
+                    for (int i = 0; i < phases.size(); i++)
+                        out.write((i == 0 ? "\n    " : ",\n    ") + phases.get(i).toJson());
+                }
+                out.write("\n  ]\n}\n");
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        if (progress != null)
+            progress.shutdownNow();
+    }
+
+    // wall time, process CPU time, allocated bytes, GC time and GC count
+    private static long[] snapshot() {
+        long gcTime = 0;
+        long gcCount = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcTime += Math.max(0, gc.getCollectionTime());
+            gcCount += Math.max(0, gc.getCollectionCount());
+        }
+        return new long[]{System.nanoTime(), cpuTime(), allocatedBytes(), gcTime, gcCount};
+    }
+
+    private static long cpuTime() {
+        if (os instanceof com.sun.management.OperatingSystemMXBean)
+            return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+        return 0;
+    }
+
+    // bytes allocated by the live threads, which include the workers of the common pool used by the parallel streams,
+    // but no longer the threads that have terminated
+    private static long allocatedBytes() {
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            long sum = 0;
+            for (long b : ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(threads.getAllThreadIds()))
+                sum += Math.max(0, b);
+            return sum;
+        }
+        return 0;
+    }
+
+    private static String quote(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            if (c == '"' || c == '\\')
+                sb.append('\\').append(c);
+            else if (c < 0x20)
+                sb.append(String.format("\\u%04x", (int) c));
+            else
+                sb.append(c);
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,103 @@
+package io.github.contractautomata.CIF3Connector;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A small pool of tasks of a run, possibly depending on each other, e.g. the export of the composition running
+ * concurrently with the synthesis of the orchestration.
+ * {@link #await()} waits for all tasks, including those still running after a failure, and rethrows the first
+ * failure with the other ones suppressed, so that no task outlives the run.
+ */
+final class TaskPipeline implements AutoCloseable {
+
+    @FunctionalInterface
+    interface IOTask<T> {
+        T call() throws IOException;
+    }
+
+    @FunctionalInterface
+    interface IOAction {
+        void run() throws IOException;
+    }
+
+    @FunctionalInterface
+    interface IOConsumer<T> {
+        void accept(T t) throws IOException;
+    }
+
+    private final ExecutorService pool;
+    private final List<CompletableFuture<?>> tasks = new ArrayList<>();
+
+    TaskPipeline(int threads) {
+        this.pool = Executors.newFixedThreadPool(threads);
+    }
+
+    <T> CompletableFuture<T> submit(IOTask<T> task) {
+        CompletableFuture<T> f = CompletableFuture.supplyAsync(() -> {
+            try {
+                return task.call();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, pool);
+        tasks.add(f);
+        return f;
+    }
+
+    CompletableFuture<Void> execute(IOAction task) {
+        return submit(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Submits a task consuming the result of another one, which is not run if the other task fails.
+     */
+    <T> CompletableFuture<Void> then(CompletableFuture<T> previous, IOConsumer<T> task) {
+        CompletableFuture<Void> f = previous.thenAcceptAsync(t -> {
+            try {
+                task.accept(t);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, pool);
+        tasks.add(f);
+        return f;
+    }
+
+    void await() throws IOException {
+        Throwable failure = null;
+        for (CompletableFuture<?> f : tasks) {
+            try {
+                f.join();
+            } catch (CompletionException e) {
+                Throwable cause = (e.getCause() instanceof UncheckedIOException) ? e.getCause().getCause() : e.getCause();
+                if (failure == null)
+                    failure = cause;
+                else if (failure != cause && !(cause instanceof CompletionException))
+                    failure.addSuppressed(cause);
+            }
+        }
+        if (failure instanceof IOException)
+            throw (IOException) failure;
+        if (failure instanceof RuntimeException)
+            throw (RuntimeException) failure;
+        if (failure instanceof Error)
+            throw (Error) failure;
+        if (failure != null)
+            throw new IllegalStateException(failure);
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,70 @@
+package io.github.contractautomata.CIF3Connector;
+
+import io.github.contractautomata.catlib.automaton.Automaton;
+import io.github.contractautomata.catlib.automaton.label.CALabel;
+import io.github.contractautomata.catlib.automaton.label.action.Action;
+import io.github.contractautomata.catlib.automaton.state.State;
+import io.github.contractautomata.catlib.automaton.transition.ModalTransition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AutBinaryConverterTest {
+
+    private final AutBinaryConverter cab = new AutBinaryConverter();
+
+    @TempDir
+    Path tmp;
+
+    private void assertRoundTrip(Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> aut) throws IOException {
+        Path file = tmp.resolve("aut" + AutBinaryConverter.EXTENSION);
+        cab.exportMSCA(file.toString(), aut);
+        Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> read = cab.importMSCA(file.toString());
+        assertEquals(aut.getRank(), read.getRank());
+        assertEquals(aut.getNumStates(), read.getNumStates());
+        assertEquals(TestAutomata.describe(aut), TestAutomata.describe(read));
+    }
+
+    @Test
+    void roundTripOfPrincipals() throws IOException {
+        for (String r : TestAutomata.RAIL)
+            assertRoundTrip(TestAutomata.load(r));
+        assertRoundTrip(TestAutomata.load("Dealer.data"));
+    }
+
+    @Test
+    void roundTripOfCompositionsAndOrchestrations() throws IOException {
+        for (String r : new String[]{"CardComposition.data", "RailComposition.data"}) {
+            Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> comp = TestAutomata.load(r);
+            assertRoundTrip(comp);
+            assertRoundTrip(TestAutomata.orchestration(comp));
+        }
+    }
+
+    @Test
+    void extensionIsAppended() throws IOException {
+        cab.exportMSCA(tmp.resolve("aut").toString(), TestAutomata.load("Dealer.data"));
+        assertTrue(Files.exists(tmp.resolve("aut" + AutBinaryConverter.EXTENSION)));
+    }
+
+    @Test
+    void malformedFilesAreRejected() throws IOException {
+        Path file = tmp.resolve("aut" + AutBinaryConverter.EXTENSION);
+        cab.exportMSCA(file.toString(), TestAutomata.load("CardComposition.data"));
+        byte[] b = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(b, b.length / 2));
+        assertThrows(IOException.class, () -> cab.importMSCA(file.toString()));
+
+        Files.writeString(file, "Rank: 1");
+        assertThrows(IOException.class, () -> cab.importMSCA(file.toString()));
+        assertThrows(IllegalArgumentException.class, () -> cab.importMSCA(tmp.resolve("aut.data").toString()));
+    }
+}
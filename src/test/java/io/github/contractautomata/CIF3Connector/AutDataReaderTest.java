@@ -0,0 +1,76 @@
+package io.github.contractautomata.CIF3Connector;
+
+import io.github.contractautomata.catlib.automaton.Automaton;
+import io.github.contractautomata.catlib.automaton.label.CALabel;
+import io.github.contractautomata.catlib.automaton.label.action.Action;
+import io.github.contractautomata.catlib.automaton.state.State;
+import io.github.contractautomata.catlib.automaton.transition.ModalTransition;
+import io.github.contractautomata.catlib.converters.AutDataConverter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AutDataReaderTest {
+
+    @TempDir
+    Path tmp;
+
+    // the resource is copied to a file, for the importer of CATLib
+    private Path copy(String resource) throws IOException {
+        Path file = tmp.resolve(resource);
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(resource)) {
+            Files.copy(in, file);
+        }
+        return file;
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"Dealer.data", "Player.data", "client.data", "service.data", "train1.data", "train2.data",
+            "driver.data", "semaphoreContr.data", "semaphore.data", "CardComposition.data", "CardOrchestration.data",
+            "RailComposition.data", "RailOrchestration.data"})
+    void readsAsTheImporterOfCATLib(String resource) throws IOException {
+        Path file = copy(resource);
+        Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> expected =
+                new AutDataConverter<>(CALabel::new).importMSCA(file.toString());
+        Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> read =
+                new AutDataReader().read(file);
+        assertEquals(expected.getRank(), read.getRank());
+        assertEquals(expected.getNumStates(), read.getNumStates());
+        assertEquals(TestAutomata.describe(expected), TestAutomata.describe(read));
+        assertEquals(TestAutomata.describe(read), TestAutomata.describe(TestAutomata.load(resource)));
+    }
+
+    @Test
+    void statesAndLabelsAreInterned() throws IOException {
+        Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> aut =
+                new AutDataReader().read(copy("CardComposition.data"));
+        long labels = aut.getTransition().stream().map(ModalTransition::getLabel).distinct().count();
+        assertEquals(labels, aut.getTransition().stream().map(t -> System.identityHashCode(t.getLabel())).distinct().count());
+        assertEquals(aut.getNumStates(), aut.getTransition().stream()
+                .flatMap(t -> Stream.of(t.getSource(), t.getTarget()))
+                .map(System::identityHashCode).distinct().count());
+    }
+
+    @Test
+    void malformedInputsAreRejected() throws IOException {
+        assertThrows(IllegalArgumentException.class, () -> new AutDataReader().read(copy("Dealer.data").resolveSibling("Dealer.txt")));
+        assertThrows(IOException.class, () -> read("Rank: 1\nInitial state: [a]\nFinal states: [[b]]\nCommitted states: [[]]\nTransitions: \n([a],[!x],[b]\n"));
+        assertThrows(IOException.class, () -> read("Rank: 1\nInitial state: [a]\nFinal states: [[b]]\nCommitted states: [[]]\nTransitions: \n([a],[!x],[b])\n([a, c],[!x, -],[b, c])\n"));
+    }
+
+    private static void read(String data) throws IOException {
+        new AutDataReader().read(new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,77 @@
+package io.github.contractautomata.CIF3Connector;
+
+import io.github.contractautomata.catlib.automaton.Automaton;
+import io.github.contractautomata.catlib.automaton.label.CALabel;
+import io.github.contractautomata.catlib.automaton.label.action.Action;
+import io.github.contractautomata.catlib.automaton.label.action.OfferAction;
+import io.github.contractautomata.catlib.automaton.state.BasicState;
+import io.github.contractautomata.catlib.automaton.state.State;
+import io.github.contractautomata.catlib.automaton.transition.ModalTransition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Set;
+
+import static io.github.contractautomata.catlib.automaton.transition.ModalTransition.Modality.PERMITTED;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BisimulationTest {
+
+    private static State<String> state(String label, boolean initial, boolean marked) {
+        return new State<>(List.of(new BasicState<>(label, initial, marked, false)));
+    }
+
+    private static ModalTransition<String, Action, State<String>, CALabel> transition(State<String> source, String action, State<String> target) {
+        return new ModalTransition<>(source, new CALabel(1, 0, new OfferAction(action)), target, PERMITTED);
+    }
+
+    @Test
+    void statesWithTheSameFutureAreMerged() {
+        State<String> s0 = state("s0", true, false);
+        State<String> s1 = state("s1", false, false);
+        State<String> s2 = state("s2", false, false);
+        State<String> s3 = state("s3", false, true);
+        State<String> s4 = state("s4", false, true);
+        Bisimulation b = Bisimulation.minimize(new Automaton<>(Set.of(
+                transition(s0, "a", s1), transition(s0, "b", s2),
+                transition(s1, "c", s3), transition(s2, "c", s4))));
+        assertEquals(3, b.getQuotient().getNumStates());
+        assertEquals(3, b.getQuotient().getTransition().size());
+        assertSame(b.getRepresentative(s1), b.getRepresentative(s2));
+        assertSame(b.getRepresentative(s3), b.getRepresentative(s4));
+        assertSame(s0, b.getRepresentative(s0));
+    }
+
+    @Test
+    void statesDifferingInMarkingAreNotMerged() {
+        State<String> s0 = state("s0", true, false);
+        State<String> s1 = state("s1", false, true);
+        State<String> s2 = state("s2", false, false);
+        Bisimulation b = Bisimulation.minimize(new Automaton<>(Set.of(
+                transition(s0, "a", s1), transition(s0, "a", s2))));
+        assertEquals(3, b.getQuotient().getNumStates());
+        assertNotSame(b.getRepresentative(s1), b.getRepresentative(s2));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"CardComposition.data", "RailComposition.data"})
+    void quotientIsMinimalAndEquivalent(String resource) throws IOException {
+        Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> mpc =
+                TestAutomata.orchestration(TestAutomata.load(resource));
+        Bisimulation b = Bisimulation.minimize(mpc);
+        Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> quotient = b.getQuotient();
+        assertTrue(quotient.getNumStates() <= mpc.getNumStates());
+        assertTrue(mpc.getStates().stream().allMatch(s -> quotient.getStates().contains(b.getRepresentative(s))));
+        assertEquals(quotient.getNumStates(), Bisimulation.minimize(quotient).getQuotient().getNumStates());
+
+        CIF3Model original = new CIF3Reader().read(new StringReader(CIF3Connector.contractAutomatonToCIF3(mpc)));
+        assertTrue(CIF3Equivalence.check(original, quotient).isEquivalent());
+    }
+}
@@ -0,0 +1,92 @@
+package io.github.contractautomata.CIF3Connector;
+
+import io.github.contractautomata.catlib.automaton.label.CALabel;
+import io.github.contractautomata.catlib.converters.AutDataConverter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CIF3ConnectorCacheTest {
+
+    private static final String SETTINGS = "settings";
+
+    @TempDir
+    Path tmp;
+
+    // the transitions of the resource are written in the reverse order, and imported by CATLib
+    private Path reversed(String resource) throws IOException {
+        List<String> lines;
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(resource)) {
+            lines = new ArrayList<>(List.of(new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\\R")));
+        }
+        int first = lines.indexOf("Transitions: ") + 1;
+        Collections.reverse(lines.subList(first, lines.size()));
+        Path file = tmp.resolve(resource);
+        Files.write(file, lines);
+        return file;
+    }
+
+    @Test
+    void keyIgnoresTheLayoutOfTheInputs() throws IOException {
+        AutDataConverter<CALabel> bdc = new AutDataConverter<>(CALabel::new);
+        String key = CIF3ConnectorCache.key(TestAutomata.load(TestAutomata.CARD), SETTINGS);
+        String reordered = CIF3ConnectorCache.key(List.of(
+                bdc.importMSCA(reversed("Dealer.data").toString()),
+                bdc.importMSCA(reversed("Player.data").toString()),
+                TestAutomata.load("Player.data")), SETTINGS);
+        assertEquals(key, reordered);
+    }
+
+    @Test
+    void keyDependsOnTheOrderOfTheInputsAndOnTheSettings() {
+        String key = CIF3ConnectorCache.key(TestAutomata.load(TestAutomata.CARD), SETTINGS);
+        assertNotEquals(key, CIF3ConnectorCache.key(TestAutomata.load(List.of("Player.data", "Dealer.data", "Player.data")), SETTINGS));
+        assertNotEquals(key, CIF3ConnectorCache.key(TestAutomata.load(TestAutomata.CARD), SETTINGS + ";minimized"));
+    }
+
+    @Test
+    void keyDependsOnTheFlagsOfTheStates() throws IOException {
+        Path dealer = reversed("Dealer.data");
+        List<String> lines = Files.readAllLines(dealer);
+        lines.replaceAll(l -> l.startsWith("Final states:") ? "Final states: [[Cards21]]" : l);
+        Files.write(dealer, lines);
+        String key = CIF3ConnectorCache.key(List.of(TestAutomata.load("Dealer.data")), SETTINGS);
+        assertNotEquals(key, CIF3ConnectorCache.key(List.of(new AutDataReader().read(dealer)), SETTINGS));
+    }
+
+    @Test
+    void evictedOrchestrationIsRecomputed() throws IOException {
+        for (String r : List.of("Dealer.data", "Player.data", "CardOrchestration.cif"))
+            try (InputStream in = getClass().getClassLoader().getResourceAsStream(r)) {
+                Files.copy(in, tmp.resolve(r));
+            }
+        String job = "-i " + tmp.resolve("Dealer.data") + " " + tmp.resolve("Player.data") + " " + tmp.resolve("Player.data")
+                + " -o " + tmp.resolve("c.cif") + " " + tmp.resolve("o.cif") + " -c " + tmp.resolve("cache")
+                + " -e " + tmp.resolve("CardOrchestration.cif") + " -r " + tmp.resolve("report.json");
+        CIF3Connector.run(CIF3ConnectorJob.parse(job.split(" ")));
+        assertTrue(Files.readString(tmp.resolve("report.json")).contains("\"cacheHit\": false"));
+        CIF3Connector.run(CIF3ConnectorJob.parse(job.split(" ")));
+        assertTrue(Files.readString(tmp.resolve("report.json")).contains("\"cacheHit\": true"));
+
+        try (Stream<Path> entries = Files.list(tmp.resolve("cache"))) {
+            for (Path e : entries.filter(Files::isDirectory).collect(Collectors.toList()))
+                Files.delete(e.resolve("orchestration" + AutBinaryConverter.EXTENSION));
+        }
+        CIF3Connector.run(CIF3ConnectorJob.parse(job.split(" ")));
+        assertTrue(Files.readString(tmp.resolve("report.json")).contains("\"cacheHit\": false"));
+    }
+}
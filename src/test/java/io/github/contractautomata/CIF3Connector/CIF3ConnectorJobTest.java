@@ -0,0 +1,147 @@
+package io.github.contractautomata.CIF3Connector;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CIF3ConnectorJobTest {
+
+    private static CIF3ConnectorJob parse(String line) {
+        return CIF3ConnectorJob.parse(line.split(" "));
+    }
+
+    private static void assertRejected(String... lines) {
+        for (String line : lines) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> parse(line), line);
+            assertTrue(e.getMessage().startsWith("Invalid value"), e.getMessage());
+        }
+    }
+
+    @Test
+    void defaults() {
+        CIF3ConnectorJob job = parse("-i Dealer.data");
+        assertEquals(List.of("Dealer.data"), job.getInputFiles());
+        assertEquals("Composition.cif", job.getCompCif());
+        assertEquals("Orchestration.cif", job.getOrchCif());
+        assertFalse(job.printContractAutomata);
+        assertFalse(job.modular);
+        assertEquals(1, job.renderThreads);
+        assertNull(job.cacheDir);
+    }
+
+    @Test
+    void inputsAreTakenUpToTheNextOption() {
+        CIF3ConnectorJob job = parse("-i Dealer.data Player.data notes.txt -a");
+        assertEquals(List.of("Dealer.data", "Player.data"), job.getInputFiles());
+        assertTrue(job.printContractAutomata);
+    }
+
+    @Test
+    void bothOutputs() {
+        CIF3ConnectorJob job = parse("-o c.cif o.cif -i a.data b.data -p 4");
+        assertEquals("c.cif", job.getCompCif());
+        assertEquals("o.cif", job.getOrchCif());
+        assertEquals(List.of("a.data", "b.data"), job.getInputFiles());
+        assertEquals(4, job.renderThreads);
+    }
+
+    @Test
+    void singleOutputDoesNotSwallowTheNextOption() {
+        CIF3ConnectorJob job = parse("-i a.data b.data -o c.cif -m");
+        assertEquals("c.cif", job.getCompCif());
+        assertEquals("Orchestration.cif", job.getOrchCif());
+        assertTrue(job.modular);
+    }
+
+    @Test
+    void outputWithoutNamesDoesNotSwallowTheNextOption() {
+        CIF3ConnectorJob job = parse("-i a.data b.data -o -a");
+        assertEquals("Composition.cif", job.getCompCif());
+        assertTrue(job.printContractAutomata);
+    }
+
+    @Test
+    void minimization() {
+        CIF3ConnectorJob job = parse("-i a.data b.data -o c.cif RailOrchestration.cif -q");
+        assertTrue(job.minimize);
+        assertEquals("RailOrchestration.map", job.mappingFile().toString());
+        assertNotEquals(job.cacheSettings(null), parse("-i a.data b.data").cacheSettings(null));
+    }
+
+    @Test
+    void equivalenceCheck() {
+        CIF3ConnectorJob job = parse("-i a.data b.data -e CardSupervisor.cif -q");
+        assertEquals("CardSupervisor.cif", job.equivalenceCif);
+        assertTrue(job.minimize);
+        assertEquals(job.cacheSettings(null), parse("-i a.data b.data -q").cacheSettings(null));
+    }
+
+    @Test
+    void binaryFormat() {
+        CIF3ConnectorJob job = parse("-i Dealer.data comp.cab -a cab");
+        assertEquals(List.of("Dealer.data", "comp.cab"), job.getInputFiles());
+        assertTrue(job.printContractAutomata);
+        assertTrue(job.binarySnapshots);
+
+        job = parse("-i Dealer.data -a -p 2");
+        assertTrue(job.printContractAutomata);
+        assertFalse(job.binarySnapshots);
+    }
+
+    @Test
+    void cacheOptions() {
+        CIF3ConnectorJob job = parse("-i a.data b.data -c cache 5 -a");
+        assertEquals("cache", job.cacheDir);
+        assertEquals(5L << 20, job.cacheMaxBytes);
+        assertTrue(job.printContractAutomata);
+
+        job = parse("-i a.data b.data -c cache -a");
+        assertEquals(1L << 30, job.cacheMaxBytes);
+        assertTrue(job.printContractAutomata);
+    }
+
+    @Test
+    void reportAndProgress() {
+        CIF3ConnectorJob job = parse("-i a.data b.data -r report.json -v 5");
+        assertEquals("report.json", job.reportFile);
+        assertEquals(5, job.progressSeconds);
+        assertEquals(List.of("a.data", "b.data"), job.getInputFiles());
+    }
+
+    @Test
+    void limits() {
+        CIF3ConnectorJob job = parse("-i a.data b.data -l 100 200 -t 30 -x partial.cif");
+        assertEquals(100, job.maxStates);
+        assertEquals(200, job.maxTransitions);
+        assertEquals(30, job.timeoutSeconds);
+        assertEquals("partial.cif", job.partialFile);
+        assertEquals(job.cacheSettings(null), parse("-i a.data b.data").cacheSettings(null));
+
+        job = parse("-i a.data b.data -l 100 -u 90");
+        assertEquals(100, job.maxStates);
+        assertEquals(0, job.maxTransitions);
+        assertEquals(90, job.heapPercent);
+    }
+
+    @Test
+    void invalidNumbersAreRejected() {
+        assertRejected("-i a.data -p x", "-i a.data -p 0", "-i a.data -p 99999999999", "-i a.data -c cache 0", "-i a.data -v -1",
+                "-i a.data -l 1e3", "-i a.data -t 99999999999", "-i a.data -u 101");
+    }
+
+    @Test
+    void cacheSettingsCountInlineInputs() {
+        CIF3ConnectorJob file = parse("-i comp.data");
+        CIF3ConnectorJob inline = parse("-o c.cif o.cif");
+        inline.inlineInputs.add(new byte[0]);
+        assertEquals(file.cacheSettings(null), inline.cacheSettings(null));
+        assertEquals("1 inline automata -> c.cif o.cif", inline.toString());
+    }
+}
@@ -0,0 +1,103 @@
+package io.github.contractautomata.CIF3Connector;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CIF3ConnectorServerTest {
+
+    @TempDir
+    Path tmp;
+
+    private Path socket;
+
+    @BeforeEach
+    void start() throws InterruptedException {
+        socket = tmp.resolve("s.sock");
+        Thread server = new Thread(() -> {
+            try {
+                CIF3ConnectorServer.serve(socket.toString(), 1);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        server.setDaemon(true);
+        server.start();
+        while (!Files.exists(socket))
+            Thread.sleep(10);
+    }
+
+    private static String data(String resource) throws IOException {
+        try (InputStream in = CIF3ConnectorServerTest.class.getClassLoader().getResourceAsStream(resource)) {
+            String[] lines = new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\\R");
+            return "DATA " + lines.length + "\n" + String.join("\n", lines) + "\n";
+        }
+    }
+
+    @Test
+    void inlineJobsAreServedOnAnOwnerOnlySocket() throws IOException {
+        assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(socket)));
+        try (SocketChannel client = SocketChannel.open(UnixDomainSocketAddress.of(socket));
+             BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(client), StandardCharsets.UTF_8));
+             Writer out = new OutputStreamWriter(Channels.newOutputStream(client), StandardCharsets.UTF_8)) {
+            out.write("INLINE 2\n" + data("client.data") + data("service.data"));
+            out.flush();
+            for (int cif = 0; cif < 2; cif++) {
+                String header = in.readLine();
+                assertTrue(header.startsWith("CIF "), header);
+                for (int i = Integer.parseInt(header.substring(4)); i > 0; i--)
+                    in.readLine();
+            }
+
+            //a bad option leaves the connection in sync
+            out.write("INLINE 1 -p x\n" + data("client.data") + "RUN -i\n");
+            out.flush();
+            assertTrue(in.readLine().startsWith("ERROR Invalid value x of -p"));
+            assertEquals("ERROR No input files specified.", in.readLine());
+        }
+    }
+
+    @Test
+    void malformedHeadersCloseTheConnection() throws IOException {
+        try (SocketChannel client = SocketChannel.open(UnixDomainSocketAddress.of(socket));
+             BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(client), StandardCharsets.UTF_8));
+             Writer out = new OutputStreamWriter(Channels.newOutputStream(client), StandardCharsets.UTF_8)) {
+            out.write("INLINE 1\nDATA many\nRank: 1\n");
+            out.flush();
+            assertEquals("ERROR Expected DATA <lines>", in.readLine());
+            assertNull(in.readLine());
+        }
+    }
+
+    @Test
+    void filesOutsideTheRootAreRejected() throws IOException {
+        Path root = tmp.toRealPath();
+        CIF3ConnectorServer.checkConfined(CIF3ConnectorJob.parse("-i a.data -o out/c.cif o.cif -c cache".split(" ")), root);
+        for (String line : new String[]{"-i ../a.data", "-i a.data -o /tmp/c.cif", "-i a.data -o link/c.cif", "-i a.data -r link/report.json", "-i a.data -x link/partial.cif"}) {
+            Files.createSymbolicLink(root.resolve("link"), root.getParent());
+            assertThrows(IllegalArgumentException.class,
+                    () -> CIF3ConnectorServer.checkConfined(CIF3ConnectorJob.parse(line.split(" ")), root), line);
+            Files.delete(root.resolve("link"));
+        }
+    }
+}
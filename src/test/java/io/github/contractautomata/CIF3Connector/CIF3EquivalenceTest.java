@@ -0,0 +1,117 @@
+package io.github.contractautomata.CIF3Connector;
+
+import io.github.contractautomata.catlib.automaton.Automaton;
+import io.github.contractautomata.catlib.automaton.label.CALabel;
+import io.github.contractautomata.catlib.automaton.label.action.Action;
+import io.github.contractautomata.catlib.automaton.state.State;
+import io.github.contractautomata.catlib.automaton.transition.ModalTransition;
+import io.github.contractautomata.catlib.operations.MSCACompositionFunction;
+import io.github.contractautomata.catlib.requirements.StrongAgreement;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CIF3EquivalenceTest {
+
+    private static CIF3Model resource(String resource) throws IOException {
+        try (InputStream in = CIF3EquivalenceTest.class.getClassLoader().getResourceAsStream(resource)) {
+            return new CIF3Reader().read(new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static CIF3Model exported(Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> aut, int parallelism) throws IOException {
+        StringWriter out = new StringWriter();
+        CIF3Connector.contractAutomatonToCIF3(aut, out, parallelism);
+        return new CIF3Reader().read(new StringReader(out.toString()));
+    }
+
+    @Test
+    void readsTheBundledExamples() throws IOException {
+        CIF3Model cif = resource("CardOrchestration.cif");
+        assertEquals(1, cif.getComponents().size());
+        assertEquals("plant", cif.getComponents().get(0).getKind());
+        assertEquals(20, cif.getControllable().size());
+        assertTrue(cif.getControllable().get("Aut.c_pair1_match_3_1"));
+        assertFalse(cif.getControllable().get("Aut.u_tau_1_tau_2"));
+        assertEquals(1, cif.getComponents().get(0).getLocations().stream().filter(CIF3Model.Location::isInitial).count());
+
+        Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> comp = TestAutomata.load("RailComposition.data");
+        assertEquals(comp.getNumStates(), resource("RailComposition.cif").getComponents().get(0).getLocations().size());
+    }
+
+    @Test
+    void bundledCardExampleIsReproduced() throws IOException {
+        Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> comp = TestAutomata.compose(TestAutomata.CARD);
+        assertTrue(CIF3Equivalence.check(resource("CardComposition.cif"), comp).isEquivalent());
+        assertTrue(CIF3Equivalence.check(resource("CardOrchestration.cif"), TestAutomata.orchestration(comp)).isEquivalent());
+    }
+
+    @Test
+    void bundledRailExampleIsReproduced() throws IOException {
+        ForbiddenStates forbidden;
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream("RailForbidden.txt")) {
+            forbidden = ForbiddenStates.parse(List.of(new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\\R")));
+        }
+        Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> comp =
+                forbidden.redirectToSink(new MSCACompositionFunction<>(CIF3Connector.encodePrincipals(TestAutomata.load(TestAutomata.RAIL)),
+                        forbidden.pruning(new StrongAgreement())).apply(Integer.MAX_VALUE));
+        assertTrue(CIF3Equivalence.check(resource("RailComposition.cif"), comp).isEquivalent());
+        assertTrue(CIF3Equivalence.check(resource("RailOrchestration.cif"), TestAutomata.orchestration(comp)).isEquivalent());
+    }
+
+    @Test
+    void exportedAutomataAreReadBackEquivalent() throws IOException {
+        for (String r : new String[]{"CardComposition.data", "CardOrchestration.data", "RailComposition.data", "RailOrchestration.data"}) {
+            Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> aut = TestAutomata.load(r);
+            for (int parallelism : new int[]{1, 4}) {
+                CIF3Model cif = exported(aut, parallelism);
+                assertEquals(aut.getNumStates(), cif.getComponents().get(0).getLocations().size());
+                CIF3Equivalence.Result result = CIF3Equivalence.check(cif, aut);
+                assertTrue(result.isEquivalent(), r + ": " + result);
+                assertEquals(aut.getNumStates(), result.getExplored());
+            }
+        }
+    }
+
+    @Test
+    void differencesAreReportedWithAShortestTrace() throws IOException {
+        Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> comp = TestAutomata.load("CardComposition.data");
+        CIF3Equivalence.Result result = CIF3Equivalence.check(resource("CardOrchestration.cif"), comp);
+        assertFalse(result.isEquivalent());
+        assertFalse(result.getDifference().isEmpty());
+
+        result = CIF3Equivalence.check(resource("CardComposition.cif"), TestAutomata.orchestration(comp));
+        assertFalse(result.isEquivalent());
+        assertTrue(result.getTrace().isEmpty(), result.toString());
+        assertTrue(result.toString().startsWith("initially, "));
+    }
+
+    @Test
+    void modularExportIsRead() throws IOException {
+        //principals without lazy transitions, which are rejected by the modular export
+        ForbiddenStates forbidden = ForbiddenStates.parse(List.of("1:Dealing & 2:Open"));
+        StringWriter out = new StringWriter();
+        CIF3Connector.principalsToModularCIF3(TestAutomata.load(List.of("Dealer.data", "semaphoreContr.data", "semaphore.data")), forbidden, out);
+        assertTrue(out.toString().contains("requirement invariant"));
+        CIF3Model cif = new CIF3Reader().read(new StringReader(out.toString()));
+        assertEquals(3, cif.getComponents().size());
+        assertTrue(cif.getComponents().stream().allMatch(c -> c.getKind().equals("plant")));
+    }
+
+    @Test
+    void unsupportedDeclarationsAreRejected() {
+        String cif = "plant automaton P:\n  disc int x = 0;\n  location l0:\n    initial;\n    marked;\nend\n";
+        assertThrows(IOException.class, () -> new CIF3Reader().read(new StringReader(cif)));
+    }
+}
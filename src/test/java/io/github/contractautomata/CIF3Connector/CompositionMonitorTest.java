@@ -0,0 +1,89 @@
+package io.github.contractautomata.CIF3Connector;
+
+import io.github.contractautomata.catlib.automaton.Automaton;
+import io.github.contractautomata.catlib.automaton.label.CALabel;
+import io.github.contractautomata.catlib.automaton.label.action.Action;
+import io.github.contractautomata.catlib.automaton.state.State;
+import io.github.contractautomata.catlib.automaton.transition.ModalTransition;
+import io.github.contractautomata.catlib.operations.MSCACompositionFunction;
+import io.github.contractautomata.catlib.requirements.StrongAgreement;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompositionMonitorTest {
+
+    // the card example has 210 transitions not pruned, out of 436 distinct ones examined, and 141 states
+    private static final int CARD_TRANSITIONS = 210;
+    private static final int CARD_STATES = 141;
+
+    @TempDir
+    Path tmp;
+
+    private static Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> compose(CompositionMonitor monitor) {
+        return new MSCACompositionFunction<>(CIF3Connector.encodePrincipals(TestAutomata.load(TestAutomata.CARD)), monitor)
+                .apply(Integer.MAX_VALUE);
+    }
+
+    @Test
+    void eachTransitionIsCountedOnce() {
+        CompositionMonitor monitor = new CompositionMonitor(t -> new StrongAgreement().negate().test(t.getLabel()));
+        Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> comp = compose(monitor);
+        assertEquals(CARD_TRANSITIONS, comp.getTransition().size());
+        assertEquals(CARD_TRANSITIONS, monitor.getKept());
+        assertEquals(436, monitor.getExamined());
+        assertEquals(TestAutomata.describe(comp), TestAutomata.describe(new Automaton<>(monitor.getExplored())));
+        assertEquals(CARD_STATES, comp.getNumStates());
+        assertEquals(comp.getNumStates(), monitor.getReached());
+    }
+
+    @Test
+    void budgetOfTransitions() {
+        ExplorationLimits enough = new ExplorationLimits(100_000, CARD_TRANSITIONS, 0, 0);
+        CompositionMonitor monitor = new CompositionMonitor(t -> new StrongAgreement().negate().test(t.getLabel()), enough);
+        compose(monitor);
+        enough.check("composition", monitor.getReached(), monitor.getKept(), "after " + monitor);
+
+        ExplorationLimits tight = new ExplorationLimits(100_000, CARD_TRANSITIONS - 1, 0, 0);
+        ExplorationLimitException e = assertThrows(ExplorationLimitException.class, () -> {
+            CompositionMonitor m = new CompositionMonitor(t -> new StrongAgreement().negate().test(t.getLabel()), tight);
+            compose(m);
+            tight.check("composition", m.getReached(), m.getKept(), "after " + m);
+        });
+        assertTrue(e.getMessage().startsWith("The composition exceeded its budget of " + (CARD_TRANSITIONS - 1) + " transitions"), e.getMessage());
+    }
+
+    @Test
+    void budgetOfStates() {
+        ExplorationLimits tight = new ExplorationLimits(CARD_STATES - 1, 0, 0, 0);
+        ExplorationLimitException e = assertThrows(ExplorationLimitException.class,
+                () -> compose(new CompositionMonitor(t -> new StrongAgreement().negate().test(t.getLabel()), tight)));
+        assertTrue(e.getMessage().startsWith("The composition exceeded its budget of " + (CARD_STATES - 1) + " states, after "
+                + CARD_STATES + " states reached"), e.getMessage());
+    }
+
+    @Test
+    void budgetOfTheRun() throws IOException {
+        for (String r : TestAutomata.CARD.subList(0, 2))
+            try (InputStream in = getClass().getClassLoader().getResourceAsStream(r)) {
+                Files.copy(in, tmp.resolve(r));
+            }
+        String inputs = "-i " + tmp.resolve("Dealer.data") + " " + tmp.resolve("Player.data") + " " + tmp.resolve("Player.data")
+                + " -o " + tmp.resolve("c.cif") + " " + tmp.resolve("o.cif");
+
+        CIF3Connector.run(CIF3ConnectorJob.parse((inputs + " -l 100000 " + CARD_TRANSITIONS).split(" ")));
+        assertTrue(Files.exists(tmp.resolve("o.cif")));
+
+        ExplorationLimitException e = assertThrows(ExplorationLimitException.class,
+                () -> CIF3Connector.run(CIF3ConnectorJob.parse((inputs + " -l 100000 " + (CARD_TRANSITIONS - 1)).split(" "))));
+        assertTrue(e.getMessage().startsWith("The composition exceeded"), e.getMessage());
+    }
+}
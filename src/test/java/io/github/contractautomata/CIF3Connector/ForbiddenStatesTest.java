@@ -0,0 +1,107 @@
+package io.github.contractautomata.CIF3Connector;
+
+import io.github.contractautomata.catlib.automaton.Automaton;
+import io.github.contractautomata.catlib.automaton.label.CALabel;
+import io.github.contractautomata.catlib.automaton.label.action.Action;
+import io.github.contractautomata.catlib.automaton.state.BasicState;
+import io.github.contractautomata.catlib.automaton.state.State;
+import io.github.contractautomata.catlib.automaton.transition.ModalTransition;
+import io.github.contractautomata.catlib.operations.MSCACompositionFunction;
+import io.github.contractautomata.catlib.requirements.StrongAgreement;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ForbiddenStatesTest {
+
+    private static State<String> state(String... labels) {
+        return new State<>(Arrays.stream(labels)
+                .map(l -> new BasicState<>(l, false, false, false))
+                .collect(Collectors.toList()));
+    }
+
+    private static ForbiddenStates rail() throws IOException {
+        try (InputStream in = ForbiddenStatesTest.class.getClassLoader().getResourceAsStream("RailForbidden.txt")) {
+            return ForbiddenStates.parse(List.of(new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\\R")));
+        }
+    }
+
+    @Test
+    void commentsAndBlankLinesAreSkipped() {
+        ForbiddenStates f = ForbiddenStates.parse(List.of("# comment", "", "  1:a.* & 2:b  ", "1=2"));
+        assertEquals("1:a.* & 2:b\n1=2", f.toString());
+    }
+
+    @Test
+    void patternsMatchWholeLabels() {
+        ForbiddenStates f = ForbiddenStates.parse(List.of("1:a.* & 2:b"));
+        assertTrue(f.test(state("abc", "b")));
+        assertFalse(f.test(state("abc", "bb")));
+        assertFalse(f.test(state("cab", "b")));
+    }
+
+    @Test
+    void rulesAreDisjunctionsOfConjunctions() {
+        ForbiddenStates f = ForbiddenStates.parse(List.of("1=2 & !1:.*OUT.*", "!3:idle"));
+        assertTrue(f.test(state("x", "x", "idle")));
+        assertFalse(f.test(state("OUT", "OUT", "idle")));
+        assertFalse(f.test(state("x", "y", "idle")));
+        assertTrue(f.test(state("x", "y", "busy")));
+    }
+
+    @Test
+    void railRules() throws IOException {
+        ForbiddenStates f = rail();
+        assertTrue(f.test(state("(2; 1)", "(0; 1)", "D", "Close", "S")));
+        assertFalse(f.test(state("(2; 1)", "(0; 1)", "D", "Open", "S")));
+        assertTrue(f.test(state("(4; 1)", "(4; 2)", "D", "Close", "S")));
+        assertTrue(f.test(state("(0; 1)", "(0; 1)", "D", "Close", "S")));
+        assertFalse(f.test(state("(OUT; 1)", "(OUT; 1)", "D", "Close", "S")));
+        assertTrue(f.test(state("(0; 1)", "(5; 1)", "D", "Open", "S")));
+    }
+
+    @Test
+    void malformedRulesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> ForbiddenStates.parse(List.of("abc")));
+        assertThrows(IllegalArgumentException.class, () -> ForbiddenStates.parse(List.of("0:abc")));
+        assertThrows(IllegalArgumentException.class, () -> ForbiddenStates.parse(List.of("x:abc")));
+        assertThrows(IllegalArgumentException.class, () -> ForbiddenStates.parse(List.of("1:(abc")));
+        assertThrows(IllegalArgumentException.class, () -> ForbiddenStates.parse(List.of("1=x")));
+        ForbiddenStates f = ForbiddenStates.parse(List.of("3:abc"));
+        assertThrows(IllegalArgumentException.class, () -> f.test(state("abc", "abc")));
+    }
+
+    @Test
+    void forbiddenStatesAreRedirectedToTheSink() throws IOException {
+        ForbiddenStates f = rail();
+        Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> comp =
+                f.redirectToSink(TestAutomata.compose(TestAutomata.RAIL));
+        Set<ModalTransition<String, Action, State<String>, CALabel>> sink = comp.getTransition().stream()
+                .filter(t -> t.getTarget().getState().get(0).getState().equals("sink"))
+                .collect(Collectors.toSet());
+        assertEquals(210, sink.size());
+        assertTrue(sink.stream().allMatch(t -> f.test(t.getSource()) && t.isUrgent()));
+        assertTrue(sink.stream().map(CIF3Connector.cachedCIF3ActionNames()).allMatch(n -> n.endsWith("sink_off_2")));
+    }
+
+    @Test
+    void pruningStopsAtForbiddenStates() throws IOException {
+        ForbiddenStates f = rail();
+        Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> comp =
+                new MSCACompositionFunction<>(CIF3Connector.encodePrincipals(TestAutomata.load(TestAutomata.RAIL)),
+                        f.pruning(new StrongAgreement())).apply(Integer.MAX_VALUE);
+        assertTrue(comp.getTransition().stream().noneMatch(t -> f.test(t.getSource())));
+        assertTrue(comp.getStates().stream().anyMatch(f));
+    }
+}
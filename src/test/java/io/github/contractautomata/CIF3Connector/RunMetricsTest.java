@@ -0,0 +1,45 @@
+package io.github.contractautomata.CIF3Connector;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RunMetricsTest {
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    void phasesAreReported() throws IOException {
+        try (RunMetrics metrics = new RunMetrics(true, 0)) {
+            try (RunMetrics.Phase phase = metrics.phase("composition")) {
+                phase.count("statesAfter", () -> 3);
+            }
+            metrics.phase("mpc");
+            metrics.writeJson(tmp.resolve("report.json"));
+        }
+        String report = Files.readString(tmp.resolve("report.json"));
+        assertTrue(report.contains("{\"name\": \"composition\", \"completed\": true"), report);
+        assertTrue(report.contains("\"statesAfter\": 3"), report);
+        assertTrue(report.contains("{\"name\": \"mpc\", \"completed\": false"), report);
+    }
+
+    @Test
+    void phasesAreNotRecordedWithoutReportNorProgress() throws IOException {
+        try (RunMetrics metrics = new RunMetrics(false, 0)) {
+            try (RunMetrics.Phase phase = metrics.phase("composition")) {
+                phase.count("statesAfter", () -> {
+                    throw new AssertionError("sizes are not computed");
+                });
+            }
+            metrics.writeJson(tmp.resolve("report.json"));
+        }
+        assertFalse(Files.readString(tmp.resolve("report.json")).contains("composition"));
+    }
+}
@@ -0,0 +1,77 @@
+package io.github.contractautomata.CIF3Connector;
+
+import io.github.contractautomata.catlib.automaton.Automaton;
+import io.github.contractautomata.catlib.automaton.label.CALabel;
+import io.github.contractautomata.catlib.automaton.label.action.Action;
+import io.github.contractautomata.catlib.automaton.state.BasicState;
+import io.github.contractautomata.catlib.automaton.state.State;
+import io.github.contractautomata.catlib.automaton.transition.ModalTransition;
+import io.github.contractautomata.catlib.operations.MSCACompositionFunction;
+import io.github.contractautomata.catlib.operations.MpcSynthesisOperator;
+import io.github.contractautomata.catlib.requirements.StrongAgreement;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * The bundled examples, loaded as resources, and the operations of the connector applied to them.
+ */
+final class TestAutomata {
+
+    static final List<String> CARD = List.of("Dealer.data", "Player.data", "Player.data");
+    static final List<String> RAIL = List.of("train1.data", "train2.data", "driver.data", "semaphoreContr.data", "semaphore.data");
+
+    private TestAutomata() {
+    }
+
+    static Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> load(String resource) {
+        try (InputStream in = TestAutomata.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null)
+                throw new FileNotFoundException(resource);
+            return new AutDataReader().read(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static List<Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>>> load(List<String> resources) {
+        return resources.stream().map(TestAutomata::load).collect(Collectors.toList());
+    }
+
+    static Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> compose(List<String> resources) {
+        return new MSCACompositionFunction<>(CIF3Connector.encodePrincipals(load(resources)),
+                t -> new StrongAgreement().negate().test(t.getLabel())).apply(Integer.MAX_VALUE);
+    }
+
+    static Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> orchestration(
+            Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> comp) {
+        return new MpcSynthesisOperator<String>(new StrongAgreement()).apply(comp);
+    }
+
+    /**
+     * Returns the transitions of the automaton as sorted strings, including the flags of their states, so that two
+     * automata are equal if and only if their descriptions are.
+     */
+    static Set<String> describe(Automaton<String, Action, State<String>, ModalTransition<String, Action, State<String>, CALabel>> aut) {
+        return aut.getTransition().stream()
+                .map(t -> describe(t.getSource()) + " " + t.getLabel().getContent() + " " + describe(t.getTarget()) + " " + t.getModality())
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    private static String describe(State<String> s) {
+        return s.getState().stream()
+                .map(TestAutomata::describe)
+                .collect(Collectors.joining(",", "[", "]"));
+    }
+
+    private static String describe(BasicState<String> s) {
+        return s.getState() + Arrays.toString(new boolean[]{s.isInitial(), s.isFinalState(), s.isCommitted()});
+    }
+}